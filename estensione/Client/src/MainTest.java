@@ -11,6 +11,7 @@ import java.awt.event.ActionListener;
 import java.io.*;
 import java.net.InetAddress;
 import java.net.Socket;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 
 /**
@@ -393,8 +394,7 @@ public class MainTest {
 			out.writeObject(fileName);
 			String response = (String) in.readObject();
 			if (response.startsWith("Oggetto HierarchicalClusterMiner caricato")) {
-				String dendrogram = (String) in.readObject();
-				showDendrogramPanel(dendrogram, 1);
+				showDendrogramPanel(1);
 			} else {
 
 			}
@@ -405,22 +405,24 @@ public class MainTest {
 	}
 
 	/**
-	 * Mostra il pannello contenente il dendrogramma caricato.
+	 * Mostra il pannello contenente il dendrogramma, ricevendolo dal server in
+	 * frammenti di testo terminati da null: ogni frammento viene aggiunto
+	 * all'area di testo appena arriva, e i pulsanti vengono mostrati solo al
+	 * termine della ricezione.
 	 * 
-	 * @param dendrogram Dendrogramma da visualizzare.
-	 * @param choice     Scelta dell'operazione (1 per caricamento da file, 2 per
-	 *                   apprendimento da database).
+	 * @param choice Scelta dell'operazione (1 per caricamento da file, 2 per
+	 *               apprendimento da database).
 	 */
-	private void showDendrogramPanel(String dendrogram, int choice) {
+	private void showDendrogramPanel(int choice) {
 		mainPanel.removeAll();
 		mainPanel.setLayout(new BorderLayout());
 
-		JLabel label = new JLabel("Dendrogramma caricato:");
+		JLabel label = new JLabel("Ricezione del dendrogramma...");
 		label.setFont(new Font("Calibri", Font.BOLD, 18));
 		label.setForeground(Color.BLACK);
 		mainPanel.add(label, BorderLayout.NORTH);
 
-		JTextArea textArea = new JTextArea(dendrogram);
+		JTextArea textArea = new JTextArea();
 		textArea.setEditable(false);
 		textArea.setBackground(new Color(200, 200, 200));
 		textArea.setForeground(Color.BLACK);
@@ -428,27 +430,63 @@ public class MainTest {
 		JScrollPane scrollPane = new JScrollPane(textArea);
 		mainPanel.add(scrollPane, BorderLayout.CENTER);
 
-		JPanel buttonPanel = new JPanel();
-		buttonPanel.setLayout(new FlowLayout());
+		mainPanel.revalidate();
+		mainPanel.repaint();
 
-		JButton homeButton = createButton("Home");
-		homeButton.addActionListener(e -> {
-			initializeComponents();
-			showLoadingScreen();
-		});
-		buttonPanel.add(homeButton);
+		SwingWorker<Void, String> receiveWorker = new SwingWorker<>() {
+			@Override
+			protected Void doInBackground() throws Exception {
+				String frame;
+				while ((frame = (String) in.readObject()) != null) { // Ricevo i frammenti fino al terminatore
+					publish(frame);
+				}
+				return null;
+			}
 
-		JButton terminateButton = createButton("Termina Esecuzione");
-		terminateButton.addActionListener(e -> terminateExecution());
-		buttonPanel.add(terminateButton);
+			@Override
+			protected void process(List<String> frames) {
+				for (String frame : frames) {
+					textArea.append(frame);
+				}
+			}
 
-		if (choice == 2) {
-			buttonPanel.add(createSaveButtonPanel()); // Add the save button panel here if needed
-		}
-		mainPanel.add(buttonPanel, BorderLayout.SOUTH);
+			@Override
+			protected void done() {
+				try {
+					get();
+				} catch (InterruptedException | ExecutionException e) {
+					e.printStackTrace();
+				}
+				label.setText("Dendrogramma caricato:");
 
-		mainPanel.revalidate();
-		mainPanel.repaint();
+				JPanel buttonPanel = new JPanel();
+				buttonPanel.setLayout(new FlowLayout());
+
+				JButton homeButton = createButton("Home");
+				homeButton.addActionListener(e -> {
+					initializeComponents();
+					showLoadingScreen();
+				});
+				buttonPanel.add(homeButton);
+
+				JButton terminateButton = createButton("Termina Esecuzione");
+				terminateButton.addActionListener(e -> terminateExecution());
+				buttonPanel.add(terminateButton);
+
+				if (choice == 2) {
+					buttonPanel.add(createSaveButtonPanel()); // Add the save button panel here if needed
+				}
+				mainPanel.add(buttonPanel, BorderLayout.SOUTH);
+
+				mainPanel.revalidate();
+				mainPanel.repaint();
+
+				if (choice == 2) {
+					showDendrogramSavePanel(); // Show the save panel after dendrogram is displayed
+				}
+			}
+		};
+		receiveWorker.execute();
 	}
 
 	/**
@@ -660,7 +698,8 @@ public class MainTest {
 		gbc.gridwidth = 2;
 		mainPanel.add(distanceLabel, gbc);
 
-		JComboBox<String> distanceComboBox = new JComboBox<>(new String[] { "Single-link", "Average-link" });
+		JComboBox<String> distanceComboBox = new JComboBox<>(new String[] { "Single-link", "Average-link",
+				"Complete-link", "Centroid", "Median", "Ward" });
 		distanceComboBox.setAlignmentX(Component.CENTER_ALIGNMENT);
 		distanceComboBox.setPreferredSize(new Dimension(150, 25));
 		distanceComboBox.setMaximumSize(new Dimension(150, 25));
@@ -700,13 +739,11 @@ public class MainTest {
 					try {
 						Object response = get();
 						if ("Clustering gerarchico completato.".equals(response)) {
-							String dendrogram = (String) in.readObject();
-							showDendrogramPanel(dendrogram, 2);
-							showDendrogramSavePanel(); // Show the save panel after dendrogram is displayed
+							showDendrogramPanel(2);
 						} else {
 
 						}
-					} catch (IOException | ClassNotFoundException | InterruptedException | ExecutionException e) {
+					} catch (InterruptedException | ExecutionException e) {
 						e.printStackTrace();
 
 					}
@@ -1,12 +1,18 @@
 import clustering.HierarchicalClusterMiner;
 import clustering.InvalidDepthException;
+import clustering.MiningMode;
+import clustering.SampleAssignment;
 import data.Data;
 import data.NoDataException;
 import database.DatabaseConnectionException;
 import database.DbAccess;
 import distance.AverageLinkDistance;
+import distance.CentroidLinkDistance;
 import distance.ClusterDistance;
+import distance.CompleteLinkDistance;
+import distance.MedianLinkDistance;
 import distance.SingleLinkDistance;
+import distance.WardLinkDistance;
 
 import java.io.*;
 import java.net.Socket;
@@ -47,6 +53,11 @@ public class ServerOneClient implements Runnable {
 
             boolean continueProgram = true;
             String tableName = null;
+            HierarchicalClusterMiner lastClustering = null; // ultimo dendrogramma appreso o caricato
+            Data lastData = null; // dati dell'ultimo dendrogramma appreso, null se caricato da file
+            String lastTable = null; // tabella dell'ultimo dendrogramma appreso
+            ClusterDistance lastDistance = null; // distanza dell'ultimo dendrogramma appreso
+            MiningMode lastMode = null; // modalità di costruzione dell'ultimo dendrogramma appreso
             while (continueProgram) {
                 try {
                     Object command = in.readObject();
@@ -87,8 +98,13 @@ public class ServerOneClient implements Runnable {
                                                         .loadHierarchicalClusterMiner(filePath);
                                                 out.writeObject(
                                                         "Oggetto HierarchicalClusterMiner caricato con successo.");
-                                                out.writeObject(clustering.toString());
-                                            } catch (IOException | ClassNotFoundException e) {
+                                                sendLevels(out, clustering, null, 0, clustering.getLevelCount() - 1);
+                                                if (lastClustering != null) {
+                                                    lastClustering.release();
+                                                }
+                                                lastClustering = clustering;
+                                                lastData = null;
+                                            } catch (IOException | ClassNotFoundException | InvalidDepthException e) {
                                                 out.writeObject("Errore durante il caricamento dell'oggetto: "
                                                         + e.getMessage());
                                             }
@@ -124,20 +140,35 @@ public class ServerOneClient implements Runnable {
                                                 + data.getNumberOfExamples());
                                         continue;
                                     }
-                                    ClusterDistance distance = null;
-                                    if (choice == 1) {
-                                        distance = new SingleLinkDistance();
-                                    } else if (choice == 2) {
-                                        distance = new AverageLinkDistance();
-                                    } else {
-                                        out.writeObject("Valore non accettabile! Deve essere 1 o 2.");
+                                    ClusterDistance distance = distanceFor(choice);
+                                    MiningMode mode = modeFor(choice);
+                                    if (distance == null) {
+                                        out.writeObject("Valore non accettabile! Deve essere tra 1 e 6.");
                                         continue;
                                     }
                                     HierarchicalClusterMiner clustering = null;
-                                    clustering = new HierarchicalClusterMiner(depth, data);
-                                    clustering.mine(data, distance);
+                                    if (lastData != null && distance.getClass() == lastDistance.getClass()
+                                            && mode == lastMode && tableName.equals(lastTable)
+                                            && depth >= lastClustering.getDepth() && lastData.hasSameExamples(data)) {
+                                        // Stessa tabella, non modificata, e stessa distanza: prosegue l'ultimo
+                                        // dendrogramma invece di ricominciare dal livello base
+                                        clustering = lastClustering;
+                                        data = lastData;
+                                        clustering.deepen(data, distance, mode, depth);
+                                    } else {
+                                        clustering = new HierarchicalClusterMiner(depth, data);
+                                        clustering.mine(data, distance, mode);
+                                    }
                                     out.writeObject("Clustering gerarchico completato.");
-                                    out.writeObject(clustering.toString(data));
+                                    sendLevels(out, clustering, data, 0, clustering.getLevelCount() - 1);
+                                    if (lastClustering != null && lastClustering != clustering) {
+                                        lastClustering.release();
+                                    }
+                                    lastClustering = clustering;
+                                    lastData = data;
+                                    lastTable = tableName;
+                                    lastDistance = distance;
+                                    lastMode = mode;
 
                                     boolean saveSuccessful = false;
                                     while (!saveSuccessful) {
@@ -156,6 +187,92 @@ public class ServerOneClient implements Runnable {
                                     out.writeObject("Errore: " + e.getMessage());
                                 }
                             }
+                        } else if (action == 4) {
+                            // Interroga l'ultimo dendrogramma appreso o caricato, rappresentando solo i livelli richiesti:
+                            // 1 = intervallo di livelli, 2 = taglio a k cluster, 3 = taglio all'altezza h
+                            int query = (Integer) in.readObject();
+                            int from = 0;
+                            int to = 0;
+                            int clusters = 0;
+                            double height = 0.0;
+                            if (query == 1) {
+                                from = (Integer) in.readObject();
+                                to = (Integer) in.readObject();
+                            } else if (query == 2) {
+                                clusters = (Integer) in.readObject();
+                            } else if (query == 3) {
+                                height = ((Number) in.readObject()).doubleValue();
+                            }
+
+                            if (lastClustering == null) {
+                                out.writeObject("Errore: nessun dendrogramma appreso o caricato.");
+                            } else if (query < 1 || query > 3) {
+                                out.writeObject("Valore non accettabile! Deve essere tra 1 e 3.");
+                            } else {
+                                try {
+                                    if (query == 2) {
+                                        from = lastClustering.cutAtClusters(clusters);
+                                        to = from;
+                                    } else if (query == 3) {
+                                        from = lastClustering.cutAtHeight(height);
+                                        to = from;
+                                    }
+                                    if (from < 0 || from > to || to >= lastClustering.getLevelCount()) {
+                                        throw new InvalidDepthException("I livelli devono essere compresi tra 0 e "
+                                                + (lastClustering.getLevelCount() - 1) + ".");
+                                    }
+                                    out.writeObject("OK");
+                                    sendLevels(out, lastClustering, lastData, from, to);
+                                } catch (InvalidDepthException e) {
+                                    out.writeObject("Errore: " + e.getMessage());
+                                }
+                            }
+                        } else if (action == 5) {
+                            // Aggiunge all'ultimo dendrogramma appreso le nuove righe della sua tabella
+                            if (lastData == null) {
+                                out.writeObject("Errore: nessun dendrogramma appreso dal database.");
+                            } else {
+                                try {
+                                    int added = lastData.update(lastTable);
+                                    lastClustering.update(lastData, lastDistance, lastMode);
+                                    out.writeObject("OK");
+                                    out.writeObject(added);
+                                    sendLevels(out, lastClustering, lastData, 0, lastClustering.getLevelCount() - 1);
+                                } catch (NoDataException | InvalidDepthException e) {
+                                    out.writeObject("Errore: " + e.getMessage());
+                                }
+                            }
+                        } else if (action == 6) {
+                            // Apprende il dendrogramma da un campione della tabella e assegna le altre righe al
+                            // cluster più vicino dei livelli richiesti
+                            int sampleSize = (Integer) in.readObject();
+                            int choice = (Integer) in.readObject();
+                            int from = (Integer) in.readObject();
+                            int to = (Integer) in.readObject();
+                            ClusterDistance distance = distanceFor(choice);
+                            if (distance == null) {
+                                out.writeObject("Valore non accettabile! Deve essere tra 1 e 6.");
+                            } else if (sampleSize <= 0 || from < 0 || from > to || to >= sampleSize) {
+                                out.writeObject("Valore non accettabile! I livelli devono essere compresi tra 0 e "
+                                        + (sampleSize - 1) + ".");
+                            } else {
+                                try {
+                                    Data sample = Data.sample(tableName, sampleSize, 0L);
+                                    HierarchicalClusterMiner clustering = new HierarchicalClusterMiner(
+                                            Math.min(to + 1, sample.getNumberOfExamples()), sample);
+                                    clustering.mine(sample, distance, modeFor(choice));
+                                    SampleAssignment assignment = new SampleAssignment(clustering, sample, distance,
+                                            from, to);
+                                    assignment.assign(tableName);
+                                    clustering.release();
+                                    out.writeObject("OK");
+                                    FrameWriter frames = new FrameWriter(out);
+                                    assignment.write(frames);
+                                    frames.close();
+                                } catch (NoDataException | InvalidDepthException e) {
+                                    out.writeObject("Errore: " + e.getMessage());
+                                }
+                            }
                         } else if (action == 3) {
                             System.out.println("Client ha terminato la sua esecuzione.");
                             continueProgram = false; // Termina il loop principale
@@ -169,6 +286,10 @@ public class ServerOneClient implements Runnable {
                     continueProgram = false;
                 }
             }
+            if (lastClustering != null) {
+                // Elimina subito gli eventuali file temporanei delle matrici delle distanze
+                lastClustering.release();
+            }
         } catch (IOException e) {
             e.printStackTrace();
         } finally {
@@ -186,4 +307,125 @@ public class ServerOneClient implements Runnable {
             }
         }
     }
+
+    /**
+     * Restituisce la distanza tra cluster corrispondente alla scelta del client.
+     *
+     * @param choice la scelta del client, tra 1 e 6
+     * @return la distanza scelta, oppure null se la scelta non è valida
+     */
+    private static ClusterDistance distanceFor(int choice) {
+        switch (choice) {
+            case 1:
+                return new SingleLinkDistance();
+            case 2:
+                return new AverageLinkDistance();
+            case 3:
+                return new CompleteLinkDistance();
+            case 4:
+                return new CentroidLinkDistance();
+            case 5:
+                return new MedianLinkDistance();
+            case 6:
+                return new WardLinkDistance();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Restituisce la modalità di costruzione più adatta alla distanza
+     * corrispondente alla scelta del client (vedi {@link #distanceFor(int)}).
+     *
+     * @param choice la scelta del client, tra 1 e 6
+     * @return la modalità di costruzione, oppure null se la scelta non è valida
+     */
+    private static MiningMode modeFor(int choice) {
+        switch (choice) {
+            case 1:
+                return MiningMode.SPANNING_TREE;
+            case 2:
+            case 3:
+            case 6:
+                return MiningMode.NN_CHAIN;
+            case 4:
+            case 5:
+                return MiningMode.DISTANCE_MATRIX;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Invia al client la rappresentazione dei livelli compresi tra from e to,
+     * estremi inclusi, suddivisa in frammenti di testo inviati man mano che
+     * vengono prodotti e seguiti da null, in modo che il server non debba
+     * costruire l'intera rappresentazione in memoria e il client possa
+     * visualizzare i livelli mentre arrivano.
+     *
+     * @param out        lo stream di output verso il client
+     * @param clustering il dendrogramma da inviare
+     * @param data       i dati del dendrogramma, oppure null per rappresentare i
+     *                   cluster con gli indici degli esempi
+     * @param from       il primo livello da inviare
+     * @param to         l'ultimo livello da inviare
+     * @throws InvalidDepthException se l'intervallo non è compreso tra i livelli
+     *                               disponibili
+     * @throws IOException           se si verifica un errore durante l'invio
+     */
+    private static void sendLevels(ObjectOutputStream out, HierarchicalClusterMiner clustering, Data data,
+                                   int from, int to) throws InvalidDepthException, IOException {
+        FrameWriter frames = new FrameWriter(out);
+        clustering.write(frames, data, from, to);
+        frames.close();
+    }
+
+    /**
+     * Writer che raccoglie il testo in frammenti di dimensione limitata e invia
+     * ciascun frammento come stringa sullo stream di oggetti. I frammenti sono
+     * scritti con {@link ObjectOutputStream#writeUnshared(Object)}, per cui lo
+     * stream non ne conserva alcun riferimento. La chiusura invia il frammento
+     * residuo e il terminatore null, ma non chiude lo stream sottostante.
+     */
+    private static class FrameWriter extends Writer {
+        private static final int FRAME_SIZE = 1 << 16; // numero massimo di caratteri per frammento
+        private final ObjectOutputStream out;
+        private final StringBuilder frame = new StringBuilder(FRAME_SIZE);
+
+        FrameWriter(ObjectOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            frame.append(cbuf, off, len);
+            if (frame.length() >= FRAME_SIZE) {
+                flush();
+            }
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            frame.append(str, off, off + len);
+            if (frame.length() >= FRAME_SIZE) {
+                flush();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (frame.length() > 0) {
+                out.writeUnshared(frame.toString());
+                frame.setLength(0);
+            }
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+            out.writeObject(null);
+            out.flush();
+        }
+    }
 }
@@ -0,0 +1,132 @@
+package clustering;
+
+import data.Data;
+import data.KdTree;
+
+import java.util.Arrays;
+
+/**
+ * La classe BoruvkaSpanningTree calcola l'albero di copertura minimo del grafo
+ * completo degli esempi con l'algoritmo di Borůvka: a ogni passo ogni
+ * componente sceglie l'arco più leggero che la collega a un'altra componente, e
+ * gli archi scelti vengono aggiunti all'albero, almeno dimezzando il numero di
+ * componenti. L'arco più leggero di ogni componente si ottiene cercando con un
+ * {@link KdTree} il vicino più prossimo di un'altra componente di ciascun
+ * esempio, scartando in blocco i nodi dell'indice interamente contenuti nella
+ * componente e quelli più lontani del miglior arco trovato per la componente.
+ * Il vicino trovato per un esempio viene conservato finché resta in un'altra
+ * componente, e in quel caso non serve cercarlo di nuovo.
+ * <p>
+ * Con esempi di dimensione ridotta il costo è all'incirca O(n log^2 n) e non
+ * viene mai calcolata la distanza tra tutte le coppie di esempi. A parità di
+ * peso gli archi vengono confrontati come le fusioni (vedi {@link Merge}),
+ * così che le scelte delle componenti non formino cicli. Anche l'ordine delle
+ * fusioni in pareggio, frequenti con valori interi, viene ricostruito da
+ * {@link SingleLinkSpanningTree} cercando i vicini con un {@link KdTree}, per
+ * cui i pareggi non riportano il costo al quadrato del numero di esempi.
+ */
+class BoruvkaSpanningTree {
+
+	private final Data data;
+	private final int n;
+	private final int[] parent; // union-find: la radice è l'esempio con indice minimo
+
+	/**
+	 * Prepara il calcolo dell'albero sugli esempi del dataset specificato.
+	 *
+	 * @param data l'oggetto Data che contiene i dati utilizzati per l'analisi
+	 */
+	BoruvkaSpanningTree(Data data) {
+		this.data = data;
+		this.n = data.getNumberOfExamples();
+		parent = new int[n];
+		for (int i = 0; i < n; i++) {
+			parent[i] = i;
+		}
+	}
+
+	/**
+	 * Costruisce l'albero di copertura minimo. Può essere invocato una sola volta
+	 * per oggetto.
+	 *
+	 * @return gli n-1 archi dell'albero, come fusioni tra i loro estremi
+	 */
+	Merge[] minimumSpanningTree() {
+		Merge[] edges = new Merge[Math.max(n - 1, 0)];
+		int size = 0;
+		KdTree index = new KdTree(data);
+		int[] components = new int[n];
+		Merge[] lightest = new Merge[n]; // arco più leggero di ogni componente, per radice
+		int[] neighbor = new int[n]; // vicino più prossimo di un'altra componente, -1 se da cercare
+		Arrays.fill(neighbor, -1);
+		while (size < n - 1) {
+			for (int v = 0; v < n; v++) {
+				components[v] = find(v);
+			}
+			index.setGroups(components);
+			// Un vicino ancora in un'altra componente resta il più vicino, perché le
+			// componenti si possono solo unire: i suoi archi fissano subito i limiti
+			for (int v = 0; v < n; v++) {
+				if (neighbor[v] >= 0 && components[neighbor[v]] != components[v]) {
+					offer(lightest, components[v], v, neighbor[v]);
+				} else {
+					neighbor[v] = -1;
+				}
+			}
+			for (int v = 0; v < n; v++) {
+				if (neighbor[v] < 0) {
+					Merge best = lightest[components[v]];
+					int u = index.nearestInOtherGroup(v, best == null ? Double.POSITIVE_INFINITY : best.getHeight());
+					if (u >= 0) {
+						neighbor[v] = u;
+						offer(lightest, components[v], v, u);
+					}
+				}
+			}
+			for (int v = 0; v < n; v++) {
+				Merge edge = lightest[v];
+				if (edge == null) {
+					continue;
+				}
+				lightest[v] = null;
+				int a = find(edge.getFirst());
+				int b = find(edge.getSecond());
+				if (a != b) {
+					parent[Math.max(a, b)] = Math.min(a, b);
+					edges[size++] = edge;
+				}
+			}
+		}
+		return edges;
+	}
+
+	/**
+	 * Propone l'arco tra due esempi come arco più leggero della componente del
+	 * primo, sostituendo quello attuale se l'arco lo precede.
+	 *
+	 * @param lightest gli archi più leggeri delle componenti, per radice
+	 * @param root     la radice della componente del primo esempio
+	 * @param v        il primo esempio
+	 * @param u        il secondo esempio, di un'altra componente
+	 */
+	private void offer(Merge[] lightest, int root, int v, int u) {
+		Merge edge = new Merge(v, u, data.getDistance(v, u));
+		if (lightest[root] == null || edge.compareTo(lightest[root]) < 0) {
+			lightest[root] = edge;
+		}
+	}
+
+	/**
+	 * Restituisce la radice della componente che contiene l'esempio specificato.
+	 *
+	 * @param x l'indice dell'esempio
+	 * @return l'indice minimo della componente che contiene x
+	 */
+	private int find(int x) {
+		while (parent[x] != x) {
+			parent[x] = parent[parent[x]];
+			x = parent[x];
+		}
+		return x;
+	}
+}
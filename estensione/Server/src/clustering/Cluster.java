@@ -1,22 +1,54 @@
 package clustering;
 
 import data.Data;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.TreeSet;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 
 /**
  * La classe Cluster rappresenta un cluster di dati, dove i dati sono
- * identificati dai loro indici.
+ * identificati dai loro indici. Gli indici sono memorizzati in un vettore
+ * ordinato che non viene mai modificato dopo essere stato assegnato al
+ * cluster, per cui i cluster che non cambiano tra un livello e il successivo
+ * del dendrogramma possono essere condivisi invece che copiati.
  */
 public class Cluster implements Iterable<Integer>, Cloneable, Serializable {
 
 	private static final long serialVersionUID = 1L;
-	private Set<Integer> clusteredData;
+
+	/**
+	 * Campi della forma serializzata: gli indici vengono salvati nel vettore
+	 * members, mentre clusteredData è l'insieme di indici delle versioni
+	 * precedenti, letto solo per compatibilità con i file già salvati.
+	 */
+	private static final ObjectStreamField[] serialPersistentFields = {
+			new ObjectStreamField("members", int[].class),
+			new ObjectStreamField("clusteredData", Set.class) };
+
+	private static final int[] EMPTY = new int[0];
+
+	private transient int[] members; // indici dei dati, in ordine crescente
+	private transient volatile Summary summary; // statistiche degli esempi, calcolate su richiesta
+	private transient volatile double[] median; // punto mediano, media dei punti mediani dei cluster fusi
 
 	public Cluster() {
-		clusteredData = new TreeSet<>();
+		members = EMPTY;
+	}
+
+	/**
+	 * Costruisce un cluster con gli indici specificati.
+	 *
+	 * @param members gli indici dei dati, in ordine crescente e senza duplicati,
+	 *                che non vengono copiati
+	 */
+	Cluster(int[] members) {
+		this.members = members;
 	}
 
 	/**
@@ -25,7 +57,18 @@ public class Cluster implements Iterable<Integer>, Cloneable, Serializable {
 	 * @param id l'indice del dato da aggiungere al cluster
 	 */
 	void addData(int id) {
-		clusteredData.add(id);
+		int position = Arrays.binarySearch(members, id);
+		if (position >= 0) {
+			return;
+		}
+		position = -position - 1;
+		int[] updated = new int[members.length + 1];
+		System.arraycopy(members, 0, updated, 0, position);
+		updated[position] = id;
+		System.arraycopy(members, position, updated, position + 1, members.length - position);
+		members = updated;
+		summary = null;
+		median = null;
 	}
 
 	/**
@@ -34,23 +77,161 @@ public class Cluster implements Iterable<Integer>, Cloneable, Serializable {
 	 * @return la dimensione del cluster
 	 */
 	public int getSize() {
-		return clusteredData.size();
+		return members.length;
 	}
 
 	/**
-	 * Crea un nuovo cluster che è la fusione dei due cluster pre-esistenti.
+	 * Restituisce l'indice del dato nella posizione specificata del cluster, con i
+	 * dati ordinati per indice crescente.
+	 *
+	 * @param position la posizione del dato nel cluster
+	 * @return l'indice del dato
+	 */
+	public int get(int position) {
+		return members[position];
+	}
+
+	/**
+	 * Crea un nuovo cluster che è la fusione dei due cluster pre-esistenti. Gli
+	 * indici dei due cluster vengono fusi in un unico passaggio, mantenendo
+	 * l'ordine crescente.
 	 *
 	 * @param c il cluster da unire al cluster corrente
 	 * @return un nuovo cluster che è la fusione dei due cluster pre-esistenti
 	 */
 	public Cluster mergeCluster(Cluster c) {
-		Cluster newC = this.clone();
-		for (int id : c.clusteredData) {
-			newC.addData(id);
+		int[] a = members;
+		int[] b = c.members;
+		int[] merged = new int[a.length + b.length];
+		int x = 0;
+		int y = 0;
+		int size = 0;
+		while (x < a.length && y < b.length) {
+			if (a[x] < b[y]) {
+				merged[size++] = a[x++];
+			} else if (a[x] > b[y]) {
+				merged[size++] = b[y++];
+			} else {
+				merged[size++] = a[x++];
+				y++;
+			}
+		}
+		while (x < a.length) {
+			merged[size++] = a[x++];
+		}
+		while (y < b.length) {
+			merged[size++] = b[y++];
+		}
+		Cluster newC = new Cluster(size == merged.length ? merged : Arrays.copyOf(merged, size));
+
+		Summary s1 = summary;
+		Summary s2 = c.summary;
+		newC.summary = s1 != null && s2 != null && size == merged.length
+				? new Summary(getSize(), s1, c.getSize(), s2)
+				: null;
+		double[] m1 = median;
+		double[] m2 = c.median;
+		if (m1 != null && m2 != null) {
+			double[] m = new double[m1.length];
+			for (int k = 0; k < m.length; k++) {
+				m[k] = (m1[k] + m2[k]) / 2;
+			}
+			newC.median = m;
 		}
 		return newC;
 	}
 
+	/**
+	 * Restituisce il baricentro degli esempi del cluster, calcolandolo alla prima
+	 * invocazione. Il vettore restituito è condiviso con le copie del cluster e
+	 * non deve essere modificato.
+	 *
+	 * @param data l'oggetto Data che contiene gli esempi del cluster
+	 * @return il baricentro degli esempi del cluster
+	 */
+	public double[] getCentroid(Data data) {
+		return getSummary(data).centroid;
+	}
+
+	/**
+	 * Restituisce il punto di riferimento rispetto a cui sono calcolate le somme
+	 * di {@link #getSum(Data)} e {@link #getSumOfSquares(Data)}: i valori di uno
+	 * degli esempi del cluster. Poiché il riferimento appartiene al cluster, la
+	 * sua distanza dal baricentro non supera la dispersione degli esempi, per
+	 * cui le somme restano dell'ordine della dispersione anche quando i valori
+	 * hanno un grande scostamento comune, e con valori interi sono esatte. Il
+	 * vettore restituito non deve essere modificato.
+	 *
+	 * @param data l'oggetto Data che contiene gli esempi del cluster
+	 * @return i valori del punto di riferimento
+	 */
+	public double[] getReference(Data data) {
+		return getSummary(data).reference;
+	}
+
+	/**
+	 * Restituisce la somma delle differenze tra gli esempi del cluster e il punto
+	 * di riferimento (vedi {@link #getReference(Data)}). Il vettore restituito
+	 * non deve essere modificato.
+	 *
+	 * @param data l'oggetto Data che contiene gli esempi del cluster
+	 * @return la somma dei valori degli esempi traslati nel punto di riferimento
+	 */
+	public double[] getSum(Data data) {
+		return getSummary(data).sum;
+	}
+
+	/**
+	 * Restituisce la somma delle distanze tra gli esempi del cluster e il punto
+	 * di riferimento (vedi {@link #getReference(Data)}).
+	 *
+	 * @param data l'oggetto Data che contiene gli esempi del cluster
+	 * @return la somma dei quadrati delle norme degli esempi traslati
+	 */
+	public double getSumOfSquares(Data data) {
+		return getSummary(data).sumOfSquares;
+	}
+
+	/**
+	 * Restituisce le statistiche degli esempi del cluster. Se non sono state
+	 * ottenute dalla fusione dei cluster di partenza vengono calcolate scorrendo
+	 * gli esempi. Le statistiche sono immutabili e pubblicate tramite un campo
+	 * volatile, per cui il metodo può essere invocato da più thread
+	 * contemporaneamente: nel caso peggiore più thread le calcolano, ottenendo
+	 * gli stessi valori.
+	 *
+	 * @param data l'oggetto Data che contiene gli esempi del cluster
+	 * @return le statistiche degli esempi del cluster
+	 */
+	private Summary getSummary(Data data) {
+		Summary s = summary;
+		if (s == null) {
+			s = new Summary(members, data);
+			summary = s;
+		}
+		return s;
+	}
+
+	/**
+	 * Restituisce il punto mediano del cluster, cioè la media dei punti mediani
+	 * dei due cluster da cui è stato ottenuto per fusione, indipendentemente dalle
+	 * loro dimensioni. Se la storia delle fusioni non è nota, ad esempio per un
+	 * cluster con un solo esempio o appena deserializzato, viene usato il
+	 * baricentro. Come le statistiche, può essere richiesto da più thread
+	 * contemporaneamente. Il vettore restituito non deve essere modificato.
+	 *
+	 * @param data l'oggetto Data che contiene gli esempi del cluster
+	 * @return il punto mediano del cluster
+	 */
+	public double[] getMedian(Data data) {
+		double[] m = median;
+		if (m == null) {
+			m = getCentroid(data);
+			median = m;
+		}
+		return m;
+	}
+
 	/**
 	 * Restituisce una rappresentazione in stringa del cluster.
 	 *
@@ -59,10 +240,9 @@ public class Cluster implements Iterable<Integer>, Cloneable, Serializable {
 	@Override
 	public String toString() {
 		StringBuilder str = new StringBuilder();
-		Iterator<Integer> iterator = clusteredData.iterator();
-		while (iterator.hasNext()) {
-			str.append(iterator.next());
-			if (iterator.hasNext()) {
+		for (int i = 0; i < members.length; i++) {
+			str.append(members[i]);
+			if (i + 1 < members.length) {
 				str.append(",");
 			}
 		}
@@ -81,12 +261,35 @@ public class Cluster implements Iterable<Integer>, Cloneable, Serializable {
 	 */
 	public String toString(Data data) {
 		StringBuilder str = new StringBuilder();
-		for (int id : clusteredData) {
+		for (int id : members) {
 			str.append("<").append(data.getExample(id)).append(">");
 		}
 		return str.toString();
 	}
 
+	/**
+	 * Accoda la rappresentazione del cluster all'output specificato, un esempio
+	 * alla volta, senza costruire una stringa per l'intero cluster.
+	 *
+	 * @param out  l'output a cui accodare la rappresentazione
+	 * @param data l'oggetto Data che contiene i dati utilizzati per la
+	 *             rappresentazione, oppure null per rappresentare il cluster con
+	 *             gli indici degli esempi come {@link #toString()}
+	 * @throws IOException se si verifica un errore durante la scrittura
+	 */
+	void appendTo(Appendable out, Data data) throws IOException {
+		for (int i = 0; i < members.length; i++) {
+			if (data == null) {
+				out.append(Integer.toString(members[i]));
+				if (i + 1 < members.length) {
+					out.append(",");
+				}
+			} else {
+				out.append("<").append(data.getExample(members[i]).toString()).append(">");
+			}
+		}
+	}
+
 	/**
 	 * Restituisce un iteratore per gli elementi del cluster.
 	 *
@@ -94,22 +297,151 @@ public class Cluster implements Iterable<Integer>, Cloneable, Serializable {
 	 */
 	@Override
 	public Iterator<Integer> iterator() {
-		return clusteredData.iterator();
+		int[] ids = members;
+		return new Iterator<Integer>() {
+			private int position = 0;
+
+			@Override
+			public boolean hasNext() {
+				return position < ids.length;
+			}
+
+			@Override
+			public Integer next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return ids[position++];
+			}
+		};
 	}
 
 	/**
-	 * Crea e restituisce una copia del cluster corrente.
+	 * Crea e restituisce una copia del cluster corrente, che condivide con
+	 * l'originale il vettore degli indici, le statistiche e il punto mediano già
+	 * calcolati: il vettore degli indici non viene mai modificato, e
+	 * {@link #addData(int)} ne assegna uno nuovo.
 	 *
 	 * @return una copia del cluster corrente
 	 */
 	@Override
 	public Cluster clone() {
 		try {
-			Cluster copy = (Cluster) super.clone();
-			copy.clusteredData = new TreeSet<>(this.clusteredData);
-			return copy;
+			return (Cluster) super.clone();
 		} catch (CloneNotSupportedException e) {
 			throw new AssertionError(); // Can't happen
 		}
 	}
+
+	/**
+	 * Salva gli indici del cluster nel vettore members della forma serializzata.
+	 *
+	 * @param out lo stream su cui salvare il cluster
+	 * @throws IOException se si verifica un errore durante la scrittura
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		ObjectOutputStream.PutField fields = out.putFields();
+		fields.put("members", members);
+		out.writeFields();
+	}
+
+	/**
+	 * Legge gli indici del cluster dalla forma serializzata, accettando sia il
+	 * vettore members sia l'insieme clusteredData dei file salvati dalle versioni
+	 * precedenti.
+	 *
+	 * @param in lo stream da cui leggere il cluster
+	 * @throws IOException            se si verifica un errore durante la lettura
+	 * @throws ClassNotFoundException se la classe di un oggetto letto non può
+	 *                                essere trovata
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField fields = in.readFields();
+		int[] ids = (int[]) fields.get("members", null);
+		if (ids == null) {
+			Set<?> legacy = (Set<?>) fields.get("clusteredData", null);
+			ids = new int[legacy == null ? 0 : legacy.size()];
+			int size = 0;
+			if (legacy != null) {
+				for (Object id : legacy) {
+					ids[size++] = (Integer) id;
+				}
+			}
+			Arrays.sort(ids);
+		}
+		members = ids;
+	}
+
+	/**
+	 * Statistiche sufficienti degli esempi di un cluster: il baricentro, la somma
+	 * dei valori e la somma dei quadrati delle norme, queste ultime calcolate
+	 * rispetto a un esempio del cluster. Le statistiche di un cluster ottenuto
+	 * per fusione si ricavano da quelle dei cluster fusi in tempo proporzionale al
+	 * numero di valori degli esempi.
+	 */
+	private static final class Summary {
+
+		private final double[] centroid;
+		private final double[] reference; // valori di un esempio del cluster
+		private final double[] sum; // somma delle differenze dal riferimento
+		private final double sumOfSquares; // somma delle distanze dal riferimento
+
+		/**
+		 * Calcola le statistiche scorrendo gli esempi specificati.
+		 *
+		 * @param ids  gli indici degli esempi
+		 * @param data l'oggetto Data che contiene gli esempi
+		 */
+		Summary(int[] ids, Data data) {
+			int n = ids.length;
+			int dimension = data.getDimension();
+			reference = new double[dimension];
+			if (n > 0) {
+				data.addExampleTo(ids[0], reference);
+			}
+			centroid = new double[dimension];
+			sum = new double[dimension];
+			double[] row = new double[dimension];
+			double squares = 0.0;
+			for (int id : ids) {
+				Arrays.fill(row, 0.0);
+				data.addExampleTo(id, row);
+				for (int k = 0; k < dimension; k++) {
+					centroid[k] += row[k];
+					sum[k] += row[k] - reference[k];
+				}
+				squares += data.getDistance(id, reference);
+			}
+			for (int k = 0; k < dimension; k++) {
+				centroid[k] /= n;
+			}
+			sumOfSquares = squares;
+		}
+
+		/**
+		 * Calcola le statistiche della fusione di due cluster a partire dalle loro.
+		 *
+		 * @param n1 il numero di esempi del primo cluster
+		 * @param s1 le statistiche del primo cluster
+		 * @param n2 il numero di esempi del secondo cluster
+		 * @param s2 le statistiche del secondo cluster
+		 */
+		Summary(int n1, Summary s1, int n2, Summary s2) {
+			double n = n1 + n2;
+			centroid = new double[s1.centroid.length];
+			reference = s1.reference;
+			sum = new double[s1.sum.length];
+			// Le somme del secondo cluster vengono traslate nel riferimento del primo
+			double shift = 0.0;
+			double cross = 0.0;
+			for (int k = 0; k < centroid.length; k++) {
+				centroid[k] = (n1 * s1.centroid[k] + n2 * s2.centroid[k]) / n;
+				double e = s2.reference[k] - s1.reference[k];
+				sum[k] = s1.sum[k] + s2.sum[k] + n2 * e;
+				shift += e * e;
+				cross += e * s2.sum[k];
+			}
+			sumOfSquares = s1.sumOfSquares + s2.sumOfSquares + 2 * cross + n2 * shift;
+		}
+	}
 }
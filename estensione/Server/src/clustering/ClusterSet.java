@@ -3,7 +3,10 @@ package clustering;
 import data.Data;
 import distance.ClusterDistance;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * La classe ClusterSet rappresenta un insieme di cluster.
@@ -47,6 +50,15 @@ class ClusterSet implements Serializable {
 		return clusters[i];
 	}
 
+	/**
+	 * Restituisce il numero di cluster presenti nell'insieme.
+	 *
+	 * @return il numero di cluster nell'insieme
+	 */
+	public int getSize() {
+		return size;
+	}
+
 	/**
 	 * Restituisce una rappresentazione in stringa dell'insieme di cluster.
 	 *
@@ -77,6 +89,25 @@ class ClusterSet implements Serializable {
 		return str.toString();
 	}
 
+	/**
+	 * Accoda la rappresentazione dell'insieme di cluster all'output specificato,
+	 * nello stesso formato di {@link #toString()} o di {@link #toString(Data)},
+	 * senza costruire una stringa per l'intero insieme.
+	 *
+	 * @param out  l'output a cui accodare la rappresentazione
+	 * @param data l'oggetto Data che contiene i dati utilizzati per la
+	 *             rappresentazione, oppure null per rappresentare i cluster con
+	 *             gli indici degli esempi
+	 * @throws IOException se si verifica un errore durante la scrittura
+	 */
+	void appendTo(Appendable out, Data data) throws IOException {
+		for (int i = 0; i < size; i++) {
+			out.append("cluster").append(Integer.toString(i)).append(":");
+			clusters[i].appendTo(out, data);
+			out.append("\n");
+		}
+	}
+
 	/**
 	 * Unisce i due cluster più vicini nell'insieme utilizzando la distanza
 	 * specificata.
@@ -88,6 +119,40 @@ class ClusterSet implements Serializable {
 	 *         fusione dei due più vicini
 	 */
 	public ClusterSet mergeClosestClusters(ClusterDistance distance, Data data) {
+	    ClosestPair pair = findClosestPair(distance, data);
+	    return mergeClusters(pair.i, pair.j);
+	}
+
+	/**
+	 * Unisce i due cluster più vicini nell'insieme, suddividendo la ricerca della
+	 * coppia più vicina in blocchi di righe elaborati in parallelo. I risultati dei
+	 * blocchi vengono combinati scegliendo, a parità di distanza, la coppia con la
+	 * posizione i più bassa e poi con la posizione j più bassa, per cui il
+	 * risultato coincide con quello di
+	 * {@link #mergeClosestClusters(ClusterDistance, Data)}.
+	 *
+	 * @param distance la distanza utilizzata per calcolare la vicinanza dei cluster
+	 * @param data     l'oggetto Data che contiene i dati utilizzati per il calcolo
+	 *                 della distanza
+	 * @return un nuovo oggetto ClusterSet contenente i cluster risultanti dalla
+	 *         fusione dei due più vicini
+	 */
+	public ClusterSet mergeClosestClustersInParallel(ClusterDistance distance, Data data) {
+	    ClosestPair pair = findClosestPairInParallel(distance, data);
+	    return mergeClusters(pair.i, pair.j);
+	}
+
+	/**
+	 * Cerca la coppia di cluster più vicina nell'insieme esaminando tutte le
+	 * coppie; a parità di distanza viene scelta la coppia con la posizione i più
+	 * bassa e poi con la posizione j più bassa.
+	 *
+	 * @param distance la distanza utilizzata per calcolare la vicinanza dei cluster
+	 * @param data     l'oggetto Data che contiene i dati utilizzati per il calcolo
+	 *                 della distanza
+	 * @return la coppia di cluster più vicina
+	 */
+	ClosestPair findClosestPair(ClusterDistance distance, Data data) {
 	    double minDistance = Double.MAX_VALUE;
 	    int closestCluster1 = -1;
 	    int closestCluster2 = -1;
@@ -103,22 +168,75 @@ class ClusterSet implements Serializable {
 	            }
 	        }
 	    }
+	    return new ClosestPair(minDistance, closestCluster1, closestCluster2);
+	}
+
+	/**
+	 * Cerca la coppia di cluster più vicina nell'insieme come
+	 * {@link #findClosestPair(ClusterDistance, Data)}, elaborando in parallelo
+	 * blocchi di righe.
+	 *
+	 * @param distance la distanza utilizzata per calcolare la vicinanza dei cluster
+	 * @param data     l'oggetto Data che contiene i dati utilizzati per il calcolo
+	 *                 della distanza
+	 * @return la coppia di cluster più vicina
+	 */
+	ClosestPair findClosestPairInParallel(ClusterDistance distance, Data data) {
+	    return ForkJoinPool.commonPool().invoke(new ClosestPairSearch(distance, data, 0, size));
+	}
+
+	/**
+	 * Restituisce la posizione del cluster il cui indice minimo è quello
+	 * specificato. I cluster di ogni livello del dendrogramma sono ordinati per
+	 * indice minimo, per cui la posizione si ottiene con una ricerca binaria.
+	 *
+	 * @param minimum l'indice minimo del cluster cercato
+	 * @return la posizione del cluster, oppure un valore negativo se nessun cluster
+	 *         ha quell'indice minimo
+	 */
+	int positionOf(int minimum) {
+	    int low = 0;
+	    int high = size - 1;
+	    while (low <= high) {
+	        int middle = (low + high) >>> 1;
+	        int value = clusters[middle].get(0);
+	        if (value < minimum) {
+	            low = middle + 1;
+	        } else if (value > minimum) {
+	            high = middle - 1;
+	        } else {
+	            return middle;
+	        }
+	    }
+	    return -(low + 1);
+	}
 
+	/**
+	 * Unisce i cluster nelle posizioni specificate. Il cluster risultante dalla
+	 * fusione occupa la posizione del primo cluster, mentre gli altri cluster
+	 * mantengono il loro ordine relativo e sono condivisi con questo insieme.
+	 *
+	 * @param i la posizione del primo cluster da unire
+	 * @param j la posizione del secondo cluster da unire, con j maggiore di i
+	 * @return un nuovo oggetto ClusterSet contenente i cluster risultanti dalla
+	 *         fusione
+	 */
+	ClusterSet mergeClusters(int i, int j) {
 	    // Unisci i due cluster della coppia trovata
-	    Cluster mergedCluster = clusters[closestCluster1].mergeCluster(clusters[closestCluster2]);
+	    Cluster mergedCluster = clusters[i].mergeCluster(clusters[j]);
 
 	    // Crea un nuovo oggetto ClusterSet
 	    ClusterSet newClusterSet = new ClusterSet(size - 1);
 
 	    // Aggiungi tutti i cluster tranne i due cluster fusi
-	    for (int i = 0; i < size; i++) {
+	    for (int k = 0; k < size; k++) {
 	        try {
-	            if (i == closestCluster1) {
+	            if (k == i) {
 	                // Aggiungi il nuovo cluster ottenuto dalla fusione prima degli altri cluster
 	                newClusterSet.add(mergedCluster);
-	            } else if (i != closestCluster2) {
-	                // Clona il cluster prima di aggiungerlo al nuovo ClusterSet
-	                newClusterSet.add(clusters[i].clone());
+	            } else if (k != j) {
+	                // I cluster non vengono modificati, quindi sono condivisi tra i livelli
+	                newClusterSet.add(clusters[k]);
 	            }
 	        } catch (EmptyClusterException e) {
 	            // Stampa il messaggio di errore
@@ -128,4 +246,81 @@ class ClusterSet implements Serializable {
 	    return newClusterSet;
 	}
 
+	/**
+	 * La coppia di cluster più vicina trovata in un insieme o in un blocco di
+	 * righe: le posizioni i e j, con i minore di j, e la loro distanza.
+	 */
+	static class ClosestPair {
+		final double distance;
+		final int i;
+		final int j;
+
+		ClosestPair(double distance, int i, int j) {
+			this.distance = distance;
+			this.i = i;
+			this.j = j;
+		}
+	}
+
+	/**
+	 * Cerca la coppia di cluster più vicina tra le coppie (i, j) con i compreso
+	 * in un intervallo di righe, dividendo ricorsivamente l'intervallo finché il
+	 * numero di coppie da esaminare non è abbastanza piccolo.
+	 */
+	private class ClosestPairSearch extends RecursiveTask<ClosestPair> {
+
+		private static final long serialVersionUID = 1L;
+		private static final int THRESHOLD = 256; // numero massimo di coppie esaminate da un blocco
+
+		private final ClusterDistance distance;
+		private final Data data;
+		private final int from;
+		private final int to;
+
+		/**
+		 * Costruisce la ricerca sulle righe da from (incluso) a to (escluso).
+		 *
+		 * @param distance la distanza utilizzata per calcolare la vicinanza dei
+		 *                 cluster
+		 * @param data     l'oggetto Data che contiene i dati utilizzati per il
+		 *                 calcolo della distanza
+		 * @param from     la prima riga del blocco
+		 * @param to       la riga successiva all'ultima del blocco
+		 */
+		ClosestPairSearch(ClusterDistance distance, Data data, int from, int to) {
+			this.distance = distance;
+			this.data = data;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected ClosestPair compute() {
+			long pairs = (long) (to - from) * (2L * size - from - to - 1) / 2;
+			if (to - from > 1 && pairs > THRESHOLD) {
+				int middle = (from + to) >>> 1;
+				ClosestPairSearch left = new ClosestPairSearch(distance, data, from, middle);
+				left.fork();
+				ClosestPair right = new ClosestPairSearch(distance, data, middle, to).compute();
+				ClosestPair best = left.join();
+				// A parità di distanza prevale il blocco di sinistra, con le righe più basse
+				return right.distance < best.distance ? right : best;
+			}
+
+			double minDistance = Double.MAX_VALUE;
+			int closestCluster1 = -1;
+			int closestCluster2 = -1;
+			for (int i = from; i < to; i++) {
+				for (int j = i + 1; j < size; j++) {
+					double currentDistance = distance.distance(clusters[i], clusters[j], data);
+					if (currentDistance < minDistance) {
+						minDistance = currentDistance;
+						closestCluster1 = i;
+						closestCluster2 = j;
+					}
+				}
+			}
+			return new ClosestPair(minDistance, closestCluster1, closestCluster2);
+		}
+	}
 }
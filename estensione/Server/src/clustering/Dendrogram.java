@@ -1,44 +1,211 @@
 package clustering;
 
 import data.Data;
+import java.io.IOException;
 import java.io.Serializable;
+import java.util.Arrays;
 
 /**
  * La classe Dendrogram rappresenta un dendrogramma, una struttura gerarchica
  * che visualizza la fusione graduale di cluster.
+ * <p>
+ * Il dendrogramma non memorizza l'insieme di cluster di ogni livello ma solo la
+ * sequenza delle fusioni: per ogni livello successivo al primo, gli indici
+ * minimi dei due cluster fusi, l'altezza della fusione e la dimensione del
+ * cluster ottenuto. Il livello base è formato da un cluster per esempio, e i
+ * cluster di ogni livello sono ordinati per indice minimo, per cui qualsiasi
+ * livello può essere ricostruito su richiesta. I dendrogrammi salvati dalle
+ * versioni precedenti, che contengono gli insiemi di cluster di tutti i
+ * livelli, restano leggibili.
  */
 class Dendrogram implements Serializable {
 
     private static final long serialVersionUID = 1L;
-    private ClusterSet[] tree;
+    private ClusterSet[] tree; // livelli completi, presenti solo nei dendrogrammi salvati dalle versioni precedenti
+    private int depth; // numero di livelli
+    private int baseSize; // numero di cluster del livello base
+    private int mergeCount; // numero di fusioni registrate
+    private int[] first; // indice minimo del primo cluster fuso a ogni livello
+    private int[] second; // indice minimo del secondo cluster fuso a ogni livello
+    private double[] heights; // altezza di ogni fusione
+    private int[] sizes; // dimensione del cluster ottenuto da ogni fusione
 
     /**
-     * Costruisce un nuovo oggetto Dendrogram con la profondità specificata.
+     * Costruisce un nuovo oggetto Dendrogram con la profondità specificata, il cui
+     * livello base contiene un cluster per ciascuno degli esempi.
      *
-     * @param depth la profondità del dendrogramma
+     * @param depth    la profondità del dendrogramma
+     * @param examples il numero di esempi del livello base
      */
-    public Dendrogram(int depth) {
-        tree = new ClusterSet[depth];
+    public Dendrogram(int depth, int examples) {
+        this.depth = depth;
+        this.baseSize = examples;
+        int merges = Math.max(depth - 1, 0);
+        first = new int[merges];
+        second = new int[merges];
+        heights = new double[merges];
+        sizes = new int[merges];
     }
 
     /**
-     * Imposta l'insieme di cluster per un livello specificato nel dendrogramma.
+     * Registra la fusione che produce il livello successivo all'ultimo registrato.
      *
-     * @param c     l'insieme di cluster da impostare
-     * @param level il livello nel dendrogramma
+     * @param a      l'indice minimo del primo cluster fuso
+     * @param b      l'indice minimo del secondo cluster fuso
+     * @param height la distanza tra i due cluster al momento della fusione
+     * @param size   il numero di esempi del cluster ottenuto
+     */
+    public void addMerge(int a, int b, double height, int size) {
+        first[mergeCount] = Math.min(a, b);
+        second[mergeCount] = Math.max(a, b);
+        heights[mergeCount] = height;
+        sizes[mergeCount] = size;
+        mergeCount++;
+    }
+
+    /**
+     * Porta la profondità del dendrogramma al valore specificato, se maggiore di
+     * quella attuale, così che possano essere registrate altre fusioni.
+     *
+     * @param depth la nuova profondità del dendrogramma
+     * @throws InvalidDepthException se il dendrogramma è stato salvato da una
+     *                               versione precedente e non registra le fusioni
+     */
+    public void extend(int depth) throws InvalidDepthException {
+        if (tree != null) {
+            throw new InvalidDepthException("Il dendrogramma è stato salvato da una versione precedente e non può essere esteso.");
+        }
+        if (depth > this.depth) {
+            this.depth = depth;
+            first = Arrays.copyOf(first, depth - 1);
+            second = Arrays.copyOf(second, depth - 1);
+            heights = Arrays.copyOf(heights, depth - 1);
+            sizes = Arrays.copyOf(sizes, depth - 1);
+        }
+    }
+
+    /**
+     * Restituisce il numero di esempi del dendrogramma, cioè di cluster del
+     * livello base.
+     *
+     * @return il numero di esempi
+     */
+    public int getExampleCount() {
+        return tree != null ? tree[0].getSize() : baseSize;
+    }
+
+    /**
+     * Restituisce il numero di livelli disponibili, cioè il livello base più
+     * quelli prodotti dalle fusioni registrate.
+     *
+     * @return il numero di livelli disponibili
      */
-    public void setClusterSet(ClusterSet c, int level) {
-        tree[level] = c;
+    public int getLevelCount() {
+        return tree != null ? tree.length : Math.min(depth, mergeCount + 1);
     }
 
     /**
-     * Restituisce l'insieme di cluster per il livello specificato nel dendrogramma.
+     * Restituisce l'altezza della fusione che ha prodotto il livello specificato.
+     * Per i dendrogrammi salvati dalle versioni precedenti l'altezza non è nota.
+     *
+     * @param level il livello, maggiore di zero
+     * @return l'altezza della fusione, oppure NaN se non è nota
+     */
+    public double getHeight(int level) {
+        return tree != null ? Double.NaN : heights[level - 1];
+    }
+
+    /**
+     * Restituisce il numero di esempi del cluster ottenuto dalla fusione che ha
+     * prodotto il livello specificato.
+     *
+     * @param level il livello, maggiore di zero
+     * @return la dimensione del cluster ottenuto dalla fusione
+     */
+    public int getMergedSize(int level) {
+        if (tree != null) {
+            ClusterSet prev = tree[level - 1];
+            ClusterSet current = tree[level];
+            for (int k = 0; k < current.getSize(); k++) {
+                if (current.get(k).getSize() != prev.get(k).getSize()) {
+                    return current.get(k).getSize();
+                }
+            }
+        }
+        return sizes[level - 1];
+    }
+
+    /**
+     * Restituisce l'insieme di cluster per il livello specificato nel
+     * dendrogramma, ricostruendolo a partire dal livello base: le fusioni fino a
+     * quel livello vengono applicate a una struttura union-find la cui radice è
+     * sempre l'indice minimo del cluster, e gli esempi vengono poi raggruppati per
+     * radice.
      *
      * @param level il livello nel dendrogramma
      * @return l'insieme di cluster per il livello specificato
      */
     public ClusterSet getClusterSet(int level) {
-        return tree[level];
+        if (tree != null) {
+            return tree[level];
+        }
+        int[] parent = new int[baseSize];
+        for (int x = 0; x < baseSize; x++) {
+            parent[x] = x;
+        }
+        for (int m = 0; m < level; m++) {
+            parent[find(parent, second[m])] = find(parent, first[m]);
+        }
+
+        // Conta gli esempi di ogni cluster, identificato dalla sua radice
+        int[] counts = new int[baseSize];
+        for (int x = 0; x < baseSize; x++) {
+            counts[find(parent, x)]++;
+        }
+        int[][] members = new int[baseSize][];
+        ClusterSet set = new ClusterSet(baseSize - level);
+        for (int x = 0; x < baseSize; x++) {
+            if (parent[x] == x) {
+                members[x] = new int[counts[x]];
+                counts[x] = 0;
+            }
+        }
+        for (int x = 0; x < baseSize; x++) {
+            int root = find(parent, x);
+            members[root][counts[root]++] = x;
+        }
+        for (int x = 0; x < baseSize; x++) {
+            if (members[x] != null) {
+                try {
+                    set.add(new Cluster(members[x]));
+                } catch (EmptyClusterException e) {
+                    System.err.println(e.getMessage());
+                }
+            }
+        }
+        return set;
+    }
+
+    /**
+     * Ricostruisce l'insieme di cluster per il livello specificato applicando una
+     * alla volta, a partire dal livello base, le fusioni registrate. A differenza
+     * di {@link #getClusterSet(int)} i cluster ottenuti conservano le statistiche
+     * che dipendono dall'ordine delle fusioni, come il punto mediano, calcolato
+     * per i cluster del livello base prima di applicare le fusioni.
+     *
+     * @param level il livello nel dendrogramma
+     * @param data  l'oggetto Data che contiene gli esempi del dendrogramma
+     * @return l'insieme di cluster per il livello specificato
+     */
+    ClusterSet replayClusterSet(int level, Data data) {
+        ClusterSet set = getClusterSet(0);
+        for (int k = 0; k < set.getSize(); k++) {
+            set.get(k).getMedian(data);
+        }
+        for (int i = 1; i <= level; i++) {
+            set = tree != null ? tree[i] : nextLevel(set, i);
+        }
+        return set;
     }
 
     /**
@@ -47,7 +214,7 @@ class Dendrogram implements Serializable {
      * @return la profondità del dendrogramma
      */
     public int getDepth() {
-        return tree.length;
+        return tree != null ? tree.length : depth;
     }
 
     /**
@@ -56,11 +223,7 @@ class Dendrogram implements Serializable {
      * @return una rappresentazione in stringa del dendrogramma
      */
     public String toString() {
-        StringBuilder str = new StringBuilder();
-        for (int i = 0; i < tree.length; i++) {
-            str.append("level").append(i).append(":\n").append(tree[i]).append("\n");
-        }
-        return str.toString();
+        return render(null, 0, getLevelCount() - 1);
     }
 
     /**
@@ -73,10 +236,156 @@ class Dendrogram implements Serializable {
      *         forniti
      */
     public String toString(Data data) throws InvalidDepthException {
+        return render(data, 0, getLevelCount() - 1);
+    }
+
+    /**
+     * Restituisce una rappresentazione in stringa dei livelli compresi tra from e
+     * to, estremi inclusi, nello stesso formato di {@link #toString(Data)}. Solo
+     * i livelli richiesti vengono ricostruiti.
+     *
+     * @param data l'oggetto Data che contiene i dati utilizzati per la
+     *             rappresentazione, oppure null per rappresentare i cluster con
+     *             gli indici degli esempi
+     * @param from il primo livello da rappresentare
+     * @param to   l'ultimo livello da rappresentare
+     * @return una rappresentazione in stringa dei livelli richiesti
+     * @throws InvalidDepthException se l'intervallo non è compreso tra i livelli
+     *                               disponibili
+     */
+    public String toString(Data data, int from, int to) throws InvalidDepthException {
+        if (from < 0 || from > to || to >= getLevelCount()) {
+            throw new InvalidDepthException("I livelli devono essere compresi tra 0 e " + (getLevelCount() - 1) + ".");
+        }
+        return render(data, from, to);
+    }
+
+    /**
+     * Restituisce il livello del dendrogramma che contiene il numero di cluster
+     * specificato.
+     *
+     * @param k il numero di cluster
+     * @return il livello con k cluster
+     * @throws InvalidDepthException se nessun livello disponibile contiene k
+     *                               cluster
+     */
+    public int getLevelWithClusters(int k) throws InvalidDepthException {
+        if (tree != null) {
+            for (int level = 0; level < tree.length; level++) {
+                if (tree[level].getSize() == k) {
+                    return level;
+                }
+            }
+        } else if (k <= baseSize && baseSize - k < getLevelCount()) {
+            return baseSize - k;
+        }
+        throw new InvalidDepthException("Nessun livello del dendrogramma contiene " + k + " cluster.");
+    }
+
+    /**
+     * Restituisce il livello ottenuto tagliando il dendrogramma all'altezza
+     * specificata, cioè l'ultimo livello raggiunto con fusioni di altezza non
+     * superiore ad h. Se le altezze non sono crescenti, come può accadere con le
+     * distanze non riducibili, il taglio si ferma alla prima fusione più alta di
+     * h. Per i dendrogrammi salvati dalle versioni precedenti, che non
+     * memorizzano le altezze, il risultato è il livello base.
+     *
+     * @param h l'altezza del taglio
+     * @return il livello corrispondente al taglio
+     */
+    public int getLevelAtHeight(double h) {
+        int level = 0;
+        while (level + 1 < getLevelCount() && getHeight(level + 1) <= h) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * Scrive sull'output specificato la rappresentazione dei livelli compresi tra
+     * from e to, estremi inclusi, nello stesso formato di
+     * {@link #toString(Data)}. Il primo livello viene ricostruito con la
+     * struttura union-find e ogni livello successivo viene ricavato dal
+     * precedente con una sola fusione, per cui in memoria è presente un solo
+     * livello alla volta e la rappresentazione non viene mai costruita per
+     * intero.
+     *
+     * @param out  l'output su cui scrivere la rappresentazione
+     * @param data l'oggetto Data che contiene i dati utilizzati per la
+     *             rappresentazione, oppure null per rappresentare i cluster con
+     *             gli indici degli esempi
+     * @param from il primo livello da rappresentare
+     * @param to   l'ultimo livello da rappresentare
+     * @throws InvalidDepthException se l'intervallo non è compreso tra i livelli
+     *                               disponibili
+     * @throws IOException           se si verifica un errore durante la scrittura
+     */
+    public void write(Appendable out, Data data, int from, int to) throws InvalidDepthException, IOException {
+        if (from < 0 || from > to || to >= getLevelCount()) {
+            throw new InvalidDepthException("I livelli devono essere compresi tra 0 e " + (getLevelCount() - 1) + ".");
+        }
+        ClusterSet level = getClusterSet(from);
+        for (int i = from; i <= to; i++) {
+            if (i > from) {
+                level = tree != null ? tree[i] : nextLevel(level, i);
+            }
+            out.append("level").append(Integer.toString(i)).append(":\n");
+            level.appendTo(out, data);
+            out.append("\n");
+        }
+    }
+
+    /**
+     * Costruisce la rappresentazione in stringa dei livelli compresi tra from e
+     * to con {@link #write(Appendable, Data, int, int)}.
+     *
+     * @param data l'oggetto Data che contiene i dati utilizzati per la
+     *             rappresentazione, oppure null per rappresentare i cluster con
+     *             gli indici degli esempi
+     * @param from il primo livello da rappresentare
+     * @param to   l'ultimo livello da rappresentare
+     * @return una rappresentazione in stringa dei livelli richiesti
+     */
+    private String render(Data data, int from, int to) {
         StringBuilder str = new StringBuilder();
-        for (int i = 0; i < tree.length; i++) {
-            str.append("level").append(i).append(":\n").append(tree[i].toString(data)).append("\n");
+        if (from > to) {
+            return "";
+        }
+        try {
+            write(str, data, from, to);
+        } catch (InvalidDepthException | IOException e) {
+            throw new AssertionError(e); // Can't happen
         }
         return str.toString();
     }
+
+    /**
+     * Ricava il livello specificato applicando al livello precedente la fusione
+     * registrata per quel livello.
+     *
+     * @param prev  l'insieme di cluster del livello precedente
+     * @param level il livello da ricavare
+     * @return l'insieme di cluster del livello
+     */
+    private ClusterSet nextLevel(ClusterSet prev, int level) {
+        int i = prev.positionOf(first[level - 1]);
+        int j = prev.positionOf(second[level - 1]);
+        return prev.mergeClusters(i, j);
+    }
+
+    /**
+     * Restituisce la radice dell'insieme che contiene l'esempio specificato,
+     * dimezzando i cammini percorsi.
+     *
+     * @param parent il vettore dei padri della struttura union-find
+     * @param x      l'indice dell'esempio
+     * @return la radice dell'insieme che contiene x
+     */
+    private static int find(int[] parent, int x) {
+        while (parent[x] != x) {
+            parent[x] = parent[parent[x]];
+            x = parent[x];
+        }
+        return x;
+    }
 }
@@ -2,8 +2,12 @@ package clustering;
 
 import data.Data;
 import distance.ClusterDistance;
+import distance.LanceWilliamsDistance;
+import distance.SingleLinkDistance;
 
 import java.io.*;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * La classe HierarchicalClusterMiner implementa un algoritmo per l'analisi
@@ -12,8 +16,24 @@ import java.io.*;
 public class HierarchicalClusterMiner implements Serializable {
 
 	private static final long serialVersionUID = 1L; // Ensure compatibility during serialization
+	private static final int GRAPH_NEIGHBORS = 15; // vicini per esempio del grafo di NEIGHBOR_GRAPH
+	static final int KD_TREE_MAX_DIMENSION = 8; // dimensione massima per le ricerche con il kd-tree
 
 	private Dendrogram dendrogram;
+	private int ambiguousMerges; // fusioni il cui ordine potrebbe dipendere dalla modalità compatta
+	private Merge[] spanningTree; // albero di copertura minimo degli esempi, solo per la distanza single-link
+	private transient StoppingCriteria stopping; // criteri di arresto dell'analisi in corso
+	private transient int levels; // profondità effettiva dell'analisi in corso
+	private transient long deadline; // istante di arresto dell'analisi in corso, da System.nanoTime()
+	// Stato dell'ultima analisi, conservato per poterla proseguire con deepen
+	private transient ClusterDistance distance; // distanza utilizzata
+	private transient MiningMode mode; // modalità di costruzione utilizzata
+	private transient ClusterSet deepestLevel; // ultimo livello costruito, null se va ricostruito
+	private transient ProximityMatrix matrix; // distanze tra i cluster dell'ultimo livello
+	private transient MergeScheduler scheduler; // coda delle coppie candidate per la matrice
+	private transient int[] pendingPair; // coppia scelta ma non fusa per un criterio di arresto
+	private transient List<Merge> merges; // fusioni ordinate calcolate dalla catena o dall'albero
+	private transient NearestNeighborGraph graph; // grafo dei vicini approssimati, solo per NEIGHBOR_GRAPH
 
 	/**
 	 * Costruisce un nuovo oggetto HierarchicalClusterMiner con la profondità
@@ -26,7 +46,7 @@ public class HierarchicalClusterMiner implements Serializable {
 		try {
 			if (depth > data.getNumberOfExamples())
 				throw new InvalidDepthException();
-			dendrogram = new Dendrogram(depth);
+			dendrogram = new Dendrogram(depth, data.getNumberOfExamples());
 		} catch (InvalidDepthException e) {
 			System.err.println(e.getMessage());
 		}
@@ -40,6 +60,40 @@ public class HierarchicalClusterMiner implements Serializable {
 	 * @param distance la distanza utilizzata per calcolare la vicinanza dei cluster
 	 */
 	public void mine(Data data, ClusterDistance distance) {
+		mine(data, distance, MiningMode.EXHAUSTIVE);
+	}
+
+	/**
+	 * Esegue l'analisi dei cluster utilizzando i dati forniti, la distanza
+	 * specificata e la modalità di costruzione indicata. Se il dataset è compatto
+	 * la ricerca esaustiva viene sostituita dalla matrice delle distanze, che
+	 * produce lo stesso dendrogramma memorizzando le distanze in singola
+	 * precisione e contando le fusioni il cui ordine potrebbe dipendere
+	 * dall'arrotondamento (vedi {@link #getAmbiguousMerges()}).
+	 *
+	 * @param data     l'oggetto Data che contiene i dati utilizzati per l'analisi
+	 * @param distance la distanza utilizzata per calcolare la vicinanza dei cluster
+	 * @param mode     la modalità di costruzione del dendrogramma
+	 */
+	public void mine(Data data, ClusterDistance distance, MiningMode mode) {
+		mine(data, distance, mode, StoppingCriteria.NONE);
+	}
+
+	/**
+	 * Esegue l'analisi dei cluster come {@link #mine(Data, ClusterDistance,
+	 * MiningMode)}, fermandosi prima della profondità specificata se viene
+	 * soddisfatto uno dei criteri di arresto. In questo caso il dendrogramma
+	 * contiene solo i livelli costruiti fino a quel momento (vedi
+	 * {@link #getLevelCount()}), identici a quelli dell'analisi completa.
+	 *
+	 * @param data     l'oggetto Data che contiene i dati utilizzati per l'analisi
+	 * @param distance la distanza utilizzata per calcolare la vicinanza dei cluster
+	 * @param mode     la modalità di costruzione del dendrogramma
+	 * @param stopping i criteri di arresto anticipato
+	 */
+	public void mine(Data data, ClusterDistance distance, MiningMode mode, StoppingCriteria stopping) {
+		this.stopping = stopping;
+		this.deadline = stopping.deadline(System.nanoTime());
 		// Livello base del dendrogramma
 		ClusterSet baseLevel = new ClusterSet(data.getNumberOfExamples());
 		for (int i = 0; i < data.getNumberOfExamples(); i++) {
@@ -52,14 +106,488 @@ public class HierarchicalClusterMiner implements Serializable {
 				System.err.println(e.getMessage());
 			}
 		}
-		dendrogram.setClusterSet(baseLevel, 0);
+		dendrogram = new Dendrogram(dendrogram.getDepth(), data.getNumberOfExamples());
+		ambiguousMerges = 0;
+		spanningTree = null;
+		resetState(distance, mode);
+		deepestLevel = baseLevel;
+		grow(data);
+	}
+
+	/**
+	 * Aggiorna il dendrogramma dopo l'aggiunta di nuovi esempi in coda al
+	 * dataset, ad esempio con {@link Data#update(String)}. Con la distanza
+	 * single-link l'albero di copertura minimo calcolato in precedenza viene
+	 * esteso un esempio alla volta con costo O(n) per esempio, e le fusioni
+	 * vengono ricavate di nuovo dall'albero senza calcolare altre distanze; se
+	 * l'albero non è disponibile, ad esempio perché il dendrogramma è stato
+	 * costruito con un'altra modalità, viene calcolato con
+	 * {@link MiningMode#SPANNING_TREE} e sarà disponibile per gli aggiornamenti
+	 * successivi. Con le altre distanze, o con la modalità
+	 * {@link MiningMode#NEIGHBOR_GRAPH}, l'analisi viene ripetuta per intero.
+	 * <p>
+	 * Gli esempi già presenti devono occupare le stesse posizioni, che restano
+	 * quelle dei cluster del dendrogramma. Se il dendrogramma era completo, la
+	 * nuova profondità comprende anche i nuovi esempi; altrimenti resta quella
+	 * specificata.
+	 *
+	 * @param data     l'oggetto Data con gli esempi già analizzati seguiti da
+	 *                 quelli nuovi
+	 * @param distance la distanza utilizzata per calcolare la vicinanza dei cluster
+	 * @param mode     la modalità di costruzione del dendrogramma
+	 * @throws IllegalArgumentException se il dataset contiene meno esempi di
+	 *                                  quelli già analizzati
+	 */
+	public void update(Data data, ClusterDistance distance, MiningMode mode) {
+		int oldCount = dendrogram.getExampleCount();
+		int n = data.getNumberOfExamples();
+		if (n < oldCount) {
+			throw new IllegalArgumentException("Il dataset deve contenere tutti gli esempi già analizzati.");
+		}
+		int depth = dendrogram.getDepth() == oldCount ? n : dendrogram.getDepth();
+		dendrogram = new Dendrogram(depth, n);
+		if (!(distance instanceof SingleLinkDistance) || mode == MiningMode.NEIGHBOR_GRAPH) {
+			mine(data, distance, mode);
+			return;
+		}
+		if (spanningTree == null || spanningTree.length != Math.max(oldCount - 1, 0)) {
+			mine(data, distance, MiningMode.SPANNING_TREE);
+			return;
+		}
+		for (int z = Math.max(oldCount, 1); z < n; z++) {
+			spanningTree = SingleLinkSpanningTree.addVertex(spanningTree, z, data);
+		}
+		ambiguousMerges = 0;
+		resetState(distance, MiningMode.SPANNING_TREE);
+		stopping = StoppingCriteria.NONE;
+		deadline = stopping.deadline(System.nanoTime());
+		grow(data);
+	}
+
+	/**
+	 * Prosegue l'analisi fino alla nuova profondità specificata a partire
+	 * dall'ultimo livello già costruito, invece di ricominciare dal livello base.
+	 * Se l'ultima analisi di questo oggetto ha utilizzato la stessa distanza e la
+	 * stessa modalità, il suo stato (la matrice delle distanze o la sequenza
+	 * delle fusioni) viene riutilizzato e il costo è solo quello delle nuove
+	 * fusioni; altrimenti, ad esempio per un oggetto caricato da file, lo stato
+	 * viene ricostruito dall'ultimo livello.
+	 * <p>
+	 * I dati devono essere gli stessi dell'analisi originale. Se la nuova
+	 * profondità non supera quella attuale vengono costruiti solo i livelli
+	 * eventualmente mancanti per un arresto anticipato.
+	 *
+	 * @param data     l'oggetto Data utilizzato dall'analisi originale
+	 * @param distance la distanza utilizzata per calcolare la vicinanza dei cluster
+	 * @param mode     la modalità di costruzione del dendrogramma
+	 * @param depth    la nuova profondità del dendrogramma
+	 * @throws InvalidDepthException se la profondità supera il numero di esempi o
+	 *                               se il dendrogramma è stato salvato da una
+	 *                               versione precedente
+	 */
+	public void deepen(Data data, ClusterDistance distance, MiningMode mode, int depth) throws InvalidDepthException {
+		if (depth > data.getNumberOfExamples()) {
+			throw new InvalidDepthException();
+		}
+		dendrogram.extend(depth);
+		if (this.distance == null || this.distance.getClass() != distance.getClass() || this.mode != mode) {
+			resetState(distance, mode);
+		}
+		stopping = StoppingCriteria.NONE;
+		deadline = stopping.deadline(System.nanoTime());
+		grow(data);
+	}
+
+	/**
+	 * Rilascia le strutture mantenute per proseguire l'analisi, in particolare la
+	 * matrice delle distanze, che per i dataset più grandi occupa un file
+	 * temporaneo. Il dendrogramma resta disponibile e può ancora essere
+	 * approfondito con {@link #deepen}, ricostruendo le strutture necessarie come
+	 * per un dendrogramma caricato da file.
+	 */
+	public void release() {
+		resetState(distance, mode);
+	}
+
+	/**
+	 * Stima la frazione dei veri vicini più prossimi trovata dal grafo
+	 * approssimato dell'ultima analisi con {@link MiningMode#NEIGHBOR_GRAPH}, su
+	 * un campione di esempi di cui i vicini vengono calcolati in modo esatto, con
+	 * costo O(n) per esempio del campione. Una stima vicina a 1 indica che il
+	 * dendrogramma coincide con quello esatto nelle fusioni tra esempi vicini.
+	 *
+	 * @param sampleSize il numero di esempi del campione
+	 * @return la frazione dei vicini trovati, tra 0 e 1, oppure NaN se l'ultima
+	 *         analisi non ha costruito il grafo
+	 */
+	public double getGraphRecall(int sampleSize) {
+		return graph == null ? Double.NaN : graph.recall(sampleSize, 0L);
+	}
+
+	/**
+	 * Restituisce la profondità richiesta per il dendrogramma.
+	 *
+	 * @return la profondità del dendrogramma
+	 */
+	public int getDepth() {
+		return dendrogram.getDepth();
+	}
+
+	/**
+	 * Dimentica lo stato dell'ultima analisi e registra la distanza e la
+	 * modalità di quella successiva.
+	 *
+	 * @param distance la distanza utilizzata per calcolare la vicinanza dei cluster
+	 * @param mode     la modalità di costruzione del dendrogramma
+	 */
+	private void resetState(ClusterDistance distance, MiningMode mode) {
+		this.distance = distance;
+		this.mode = mode;
+		deepestLevel = null;
+		if (matrix != null) {
+			matrix.close();
+		}
+		matrix = null;
+		scheduler = null;
+		pendingPair = null;
+		merges = null;
+		graph = null;
+	}
+
+	/**
+	 * Costruisce i livelli mancanti del dendrogramma, dall'ultimo già costruito
+	 * fino alla profondità effettiva, con il motore adatto alla distanza e alla
+	 * modalità registrate.
+	 *
+	 * @param data l'oggetto Data che contiene i dati utilizzati per l'analisi
+	 */
+	private void grow(Data data) {
+		levels = stopping.limitDepth(dendrogram.getDepth(), data.getNumberOfExamples());
+		if (levels <= dendrogram.getLevelCount()) {
+			return;
+		}
+
+		if (mode == MiningMode.SPANNING_TREE && distance instanceof SingleLinkDistance) {
+			mineWithSpanningTree(data);
+			return;
+		}
+		if (mode == MiningMode.NEIGHBOR_GRAPH && distance instanceof SingleLinkDistance) {
+			mineWithNeighborGraph(data);
+			return;
+		}
+		if ((mode == MiningMode.NN_CHAIN || mode == MiningMode.SPANNING_TREE || mode == MiningMode.NEIGHBOR_GRAPH)
+				&& distance instanceof LanceWilliamsDistance
+				&& ((LanceWilliamsDistance) distance).isReducible()) {
+			mineWithNearestNeighborChain(data, (LanceWilliamsDistance) distance);
+			return;
+		}
+		if (mode == MiningMode.DISTANCE_MATRIX || mode == MiningMode.NN_CHAIN || mode == MiningMode.SPANNING_TREE
+				|| mode == MiningMode.NEIGHBOR_GRAPH || data.isCompact()) {
+			mineWithDistanceMatrix(data, distance);
+			return;
+		}
 
 		// Costruzione dei livelli successivi del dendrogramma
-		for (int level = 1; level < dendrogram.getDepth(); level++) {
-			ClusterSet prevLevelClusters = dendrogram.getClusterSet(level - 1);
-			ClusterSet newLevelClusters = prevLevelClusters.mergeClosestClusters(distance, data);
-			dendrogram.setClusterSet(newLevelClusters, level);
+		ClusterSet levelClusters = getDeepestLevel(data);
+		for (int level = dendrogram.getLevelCount(); level < levels; level++) {
+			ClusterSet.ClosestPair pair = mode == MiningMode.PARALLEL
+					? levelClusters.findClosestPairInParallel(distance, data)
+					: levelClusters.findClosestPair(distance, data);
+			if (!canMerge(pair.distance)) {
+				break;
+			}
+			levelClusters = merge(levelClusters, pair.i, pair.j, pair.distance);
+		}
+		deepestLevel = levelClusters;
+	}
+
+	/**
+	 * Restituisce l'ultimo livello costruito, ricostruendolo dal dendrogramma con
+	 * tutte le fusioni se il motore utilizzato finora non lo mantiene.
+	 *
+	 * @param data l'oggetto Data che contiene i dati utilizzati per l'analisi
+	 * @return l'insieme di cluster dell'ultimo livello costruito
+	 */
+	private ClusterSet getDeepestLevel(Data data) {
+		if (deepestLevel == null) {
+			deepestLevel = dendrogram.replayClusterSet(dendrogram.getLevelCount() - 1, data);
+		}
+		return deepestLevel;
+	}
+
+	/**
+	 * Registra nel dendrogramma la fusione dei cluster nelle posizioni
+	 * specificate e restituisce il livello che ne risulta.
+	 *
+	 * @param prevLevel l'insieme di cluster del livello precedente
+	 * @param i         la posizione del primo cluster da fondere
+	 * @param j         la posizione del secondo cluster da fondere, maggiore di i
+	 * @param height    la distanza tra i due cluster
+	 * @return l'insieme di cluster ottenuto dalla fusione
+	 */
+	private ClusterSet merge(ClusterSet prevLevel, int i, int j, double height) {
+		Cluster a = prevLevel.get(i);
+		Cluster b = prevLevel.get(j);
+		dendrogram.addMerge(a.get(0), b.get(0), height, a.getSize() + b.getSize());
+		return prevLevel.mergeClusters(i, j);
+	}
+
+	/**
+	 * Verifica se i criteri di arresto dell'analisi in corso consentono una
+	 * fusione all'altezza specificata.
+	 *
+	 * @param height l'altezza della fusione
+	 * @return true se la fusione può essere eseguita, false se l'analisi deve
+	 *         fermarsi
+	 */
+	private boolean canMerge(double height) {
+		return stopping.allows(height) && System.nanoTime() - deadline < 0;
+	}
+
+	/**
+	 * Restituisce il numero di fusioni dell'ultima analisi il cui ordine potrebbe
+	 * essere diverso da quello calcolato in doppia precisione, perché un'altra
+	 * coppia di cluster aveva una distanza entro l'errore di arrotondamento della
+	 * modalità compatta. Se il dataset non è compatto il risultato è sempre zero.
+	 *
+	 * @return il numero di fusioni ambigue
+	 */
+	public int getAmbiguousMerges() {
+		return ambiguousMerges;
+	}
+
+	/**
+	 * Costruisce i livelli successivi all'ultimo già costruito mantenendo le
+	 * distanze tra i cluster in una {@link ProximityMatrix} e scegliendo la
+	 * coppia da fondere con un {@link MergeScheduler}: dopo ogni fusione vengono
+	 * aggiornate solo le distanze del cluster appena creato, con la formula di
+	 * Lance-Williams se la distanza la fornisce oppure rileggendo le distanze tra
+	 * gli esempi, calcolate una sola volta. La matrice e la coda restano
+	 * disponibili per proseguire l'analisi.
+	 *
+	 * @param data     l'oggetto Data che contiene i dati utilizzati per l'analisi
+	 * @param distance la distanza utilizzata per calcolare la vicinanza dei
+	 *                 cluster
+	 */
+	private void mineWithDistanceMatrix(Data data, ClusterDistance distance) {
+		if (levels <= dendrogram.getLevelCount()) {
+			return;
+		}
+		ClusterSet levelClusters = getDeepestLevel(data);
+		if (scheduler == null) {
+			if (!(distance instanceof LanceWilliamsDistance)) {
+				// Senza formula di aggiornamento le distanze tra gli esempi vengono rilette a ogni fusione
+				data.distance();
+			}
+			matrix = new ProximityMatrix(levelClusters, distance, data);
+			scheduler = new MergeScheduler(matrix, data);
+		}
+		int ambiguousBefore = scheduler.getAmbiguousMerges();
+		for (int level = dendrogram.getLevelCount(); level < levels; level++) {
+			int[] pair = pendingPair != null ? pendingPair : scheduler.closestPair();
+			pendingPair = null;
+			double height = matrix.get(pair[0], pair[1]);
+			if (!canMerge(height)) {
+				pendingPair = pair;
+				break;
+			}
+			ClusterSet prevLevelClusters = levelClusters;
+			levelClusters = merge(prevLevelClusters, pair[0], pair[1], height);
+			scheduler.merge(pair[0], pair[1], prevLevelClusters, levelClusters, distance, data);
+		}
+		deepestLevel = levelClusters;
+		ambiguousMerges += scheduler.getAmbiguousMerges() - ambiguousBefore;
+	}
+
+	/**
+	 * Costruisce i livelli successivi all'ultimo già costruito a partire dalla
+	 * sequenza completa delle fusioni calcolata da {@link NearestNeighborChain}
+	 * sul livello base, che resta disponibile per proseguire l'analisi. Se la
+	 * catena incontra distanze in pareggio, che potrebbero portare a un ordine di
+	 * fusione diverso da quello della ricerca esaustiva, la catena si interrompe
+	 * e i livelli vengono costruiti con la matrice delle distanze, riutilizzando
+	 * quella della catena se il dendrogramma contiene solo il livello base.
+	 *
+	 * @param data     l'oggetto Data che contiene i dati utilizzati per l'analisi
+	 * @param distance la distanza riducibile utilizzata per calcolare la
+	 *                 vicinanza dei cluster
+	 */
+	private void mineWithNearestNeighborChain(Data data, LanceWilliamsDistance distance) {
+		if (scheduler != null) {
+			// Una parte precedente dell'analisi è già passata alla matrice delle distanze
+			mineWithDistanceMatrix(data, distance);
+			return;
 		}
+		if (merges == null) {
+			NearestNeighborChain chain = new NearestNeighborChain(dendrogram.getClusterSet(0), distance, data);
+			List<Merge> computed = chain.computeMerges();
+			Collections.sort(computed);
+			boolean fallback = chain.hasTies() || hasEqualHeights(computed, levels);
+			if (fallback && dendrogram.getLevelCount() == 1) {
+				// La matrice della catena, riportata al livello base, viene riutilizzata invece di costruirne un'altra
+				matrix = chain.restoreMatrix();
+				scheduler = new MergeScheduler(matrix, data);
+				mineWithDistanceMatrix(data, distance);
+				return;
+			}
+			chain.close();
+			if (fallback) {
+				mineWithDistanceMatrix(data, distance);
+				return;
+			}
+			merges = computed;
+		}
+		if (hasEqualHeights(merges, levels)) {
+			merges = null;
+			mineWithDistanceMatrix(data, distance);
+			return;
+		}
+		ambiguousMerges = countAmbiguousMerges(merges, levels, data);
+		applyMerges(merges, data.getNumberOfExamples());
+	}
+
+	/**
+	 * Costruisce i livelli successivi all'ultimo già costruito con la distanza
+	 * single-link, a partire dalle fusioni ricavate dall'albero di copertura
+	 * minimo, che viene conservato per gli aggiornamenti successivi. Con esempi
+	 * di dimensione ridotta l'albero è calcolato da {@link BoruvkaSpanningTree}
+	 * senza confrontare tutte le coppie di esempi, altrimenti da
+	 * {@link SingleLinkSpanningTree}. Se le fusioni calcolate in precedenza non
+	 * bastano, vengono ricavate tutte dall'albero conservato.
+	 *
+	 * @param data l'oggetto Data che contiene i dati utilizzati per l'analisi
+	 */
+	private void mineWithSpanningTree(Data data) {
+		if (spanningTree == null) {
+			spanningTree = data.getDimension() <= KD_TREE_MAX_DIMENSION
+					? new BoruvkaSpanningTree(data).minimumSpanningTree()
+					: new SingleLinkSpanningTree(data).minimumSpanningTree();
+		}
+		if (merges == null) {
+			merges = new SingleLinkSpanningTree(data).computeMerges(spanningTree, levels);
+		} else if (merges.size() < levels - 1) {
+			merges = new SingleLinkSpanningTree(data).computeMerges(spanningTree, data.getNumberOfExamples());
+		}
+		ambiguousMerges = countAmbiguousMerges(merges, levels, data);
+		applyMerges(merges, data.getNumberOfExamples());
+	}
+
+	/**
+	 * Costruisce i livelli successivi all'ultimo già costruito con la distanza
+	 * single-link ristretta al grafo approssimato dei vicini più prossimi (vedi
+	 * {@link NearestNeighborGraph}). Il grafo è costruito con un seme fisso, per
+	 * cui un'analisi ripresa dopo il caricamento da file ottiene lo stesso albero.
+	 *
+	 * @param data l'oggetto Data che contiene i dati utilizzati per l'analisi
+	 */
+	private void mineWithNeighborGraph(Data data) {
+		if (graph == null) {
+			graph = new NearestNeighborGraph(data, GRAPH_NEIGHBORS, 0L);
+		}
+		if (merges == null) {
+			merges = graph.computeMerges();
+		}
+		ambiguousMerges = countAmbiguousMerges(merges, levels, data);
+		applyMerges(merges, data.getNumberOfExamples());
+	}
+
+	/**
+	 * Verifica se tra le prime fusioni ordinate, fino a quella successiva
+	 * all'ultimo livello richiesto, ci sono due fusioni alla stessa altezza.
+	 *
+	 * @param merges le fusioni, ordinate per altezza crescente
+	 * @param depth  la profondità del dendrogramma
+	 * @return true se ci sono fusioni alla stessa altezza, false altrimenti
+	 */
+	private static boolean hasEqualHeights(List<Merge> merges, int depth) {
+		int last = Math.min(depth, merges.size()) - 1;
+		for (int i = 0; i < last; i++) {
+			if (merges.get(i).getHeight() == merges.get(i + 1).getHeight()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Conta, tra le prime fusioni ordinate fino a quella successiva all'ultimo
+	 * livello richiesto, quelle la cui altezza differisce dalla successiva meno
+	 * dell'errore di arrotondamento della modalità compatta.
+	 *
+	 * @param merges le fusioni, ordinate per altezza crescente
+	 * @param depth  la profondità del dendrogramma
+	 * @param data   l'oggetto Data che contiene i dati utilizzati per l'analisi
+	 * @return il numero di fusioni ambigue, zero se il dataset non è compatto
+	 */
+	private static int countAmbiguousMerges(List<Merge> merges, int depth, Data data) {
+		if (!data.isCompact()) {
+			return 0;
+		}
+		int count = 0;
+		int last = Math.min(depth, merges.size()) - 1;
+		for (int i = 0; i < last; i++) {
+			double a = merges.get(i).getHeight();
+			double b = merges.get(i + 1).getHeight();
+			if (b - a <= data.getRoundingError(a) + data.getRoundingError(b)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Registra nel dendrogramma le fusioni specificate successive all'ultimo
+	 * livello già costruito, una per livello, fino alla profondità effettiva o al
+	 * primo criterio di arresto soddisfatto. I cluster fusi vengono individuati
+	 * tramite una struttura union-find sugli esempi, inizializzata con i cluster
+	 * dell'ultimo livello, la cui radice è sempre l'esempio con indice minimo del
+	 * cluster, e che tiene traccia anche della dimensione di ogni cluster.
+	 *
+	 * @param merges le fusioni, nell'ordine in cui vanno applicate
+	 * @param n      il numero di esempi
+	 */
+	private void applyMerges(List<Merge> merges, int n) {
+		int[] parent = new int[n];
+		int[] sizes = new int[n];
+		ClusterSet deepest = deepestLevel != null ? deepestLevel
+				: dendrogram.getClusterSet(dendrogram.getLevelCount() - 1);
+		for (int k = 0; k < deepest.getSize(); k++) {
+			Cluster c = deepest.get(k);
+			for (int x = 0; x < c.getSize(); x++) {
+				parent[c.get(x)] = c.get(0);
+			}
+			sizes[c.get(0)] = c.getSize();
+		}
+		for (int level = dendrogram.getLevelCount(); level < levels; level++) {
+			Merge merge = merges.get(level - 1);
+			if (!canMerge(merge.getHeight())) {
+				break;
+			}
+			int a = find(parent, merge.getFirst());
+			int b = find(parent, merge.getSecond());
+			int first = Math.min(a, b);
+			int second = Math.max(a, b);
+			parent[second] = first;
+			sizes[first] += sizes[second];
+			dendrogram.addMerge(first, second, merge.getHeight(), sizes[first]);
+		}
+		deepestLevel = null;
+	}
+
+	/**
+	 * Restituisce la radice dell'insieme che contiene l'esempio specificato,
+	 * dimezzando i cammini percorsi.
+	 *
+	 * @param parent il vettore dei padri della struttura union-find
+	 * @param x      l'indice dell'esempio
+	 * @return la radice dell'insieme che contiene x
+	 */
+	private static int find(int[] parent, int x) {
+		while (parent[x] != x) {
+			parent[x] = parent[parent[x]];
+			x = parent[x];
+		}
+		return x;
 	}
 
 	/**
@@ -86,6 +614,87 @@ public class HierarchicalClusterMiner implements Serializable {
 		return dendrogram.toString(data);
 	}
 
+	/**
+	 * Restituisce il numero di livelli del dendrogramma generato dall'analisi.
+	 *
+	 * @return il numero di livelli disponibili
+	 */
+	public int getLevelCount() {
+		return dendrogram.getLevelCount();
+	}
+
+	/**
+	 * Restituisce una rappresentazione in stringa dei soli livelli del
+	 * dendrogramma compresi tra from e to, estremi inclusi, senza costruire
+	 * quella degli altri livelli.
+	 *
+	 * @param data l'oggetto Data che contiene i dati utilizzati per la
+	 *             rappresentazione, oppure null per rappresentare i cluster con
+	 *             gli indici degli esempi
+	 * @param from il primo livello da rappresentare
+	 * @param to   l'ultimo livello da rappresentare
+	 * @return una rappresentazione in stringa dei livelli richiesti
+	 * @throws InvalidDepthException se l'intervallo non è compreso tra i livelli
+	 *                               disponibili
+	 */
+	public String toString(Data data, int from, int to) throws InvalidDepthException {
+		return dendrogram.toString(data, from, to);
+	}
+
+	/**
+	 * Scrive sull'output specificato la rappresentazione dei livelli del
+	 * dendrogramma compresi tra from e to, estremi inclusi, un cluster alla
+	 * volta, senza costruirla per intero in memoria.
+	 *
+	 * @param out  l'output su cui scrivere la rappresentazione
+	 * @param data l'oggetto Data che contiene i dati utilizzati per la
+	 *             rappresentazione, oppure null per rappresentare i cluster con
+	 *             gli indici degli esempi
+	 * @param from il primo livello da rappresentare
+	 * @param to   l'ultimo livello da rappresentare
+	 * @throws InvalidDepthException se l'intervallo non è compreso tra i livelli
+	 *                               disponibili
+	 * @throws IOException           se si verifica un errore durante la scrittura
+	 */
+	public void write(Appendable out, Data data, int from, int to) throws InvalidDepthException, IOException {
+		dendrogram.write(out, data, from, to);
+	}
+
+	/**
+	 * Restituisce l'insieme di cluster del livello specificato del dendrogramma.
+	 *
+	 * @param level il livello, compreso tra 0 e {@link #getLevelCount()} - 1
+	 * @return l'insieme di cluster del livello
+	 */
+	ClusterSet getClusterSet(int level) {
+		return dendrogram.getClusterSet(level);
+	}
+
+	/**
+	 * Restituisce il livello del dendrogramma in cui gli esempi sono suddivisi nel
+	 * numero di cluster specificato.
+	 *
+	 * @param k il numero di cluster
+	 * @return il livello con k cluster
+	 * @throws InvalidDepthException se nessun livello disponibile contiene k
+	 *                               cluster
+	 */
+	public int cutAtClusters(int k) throws InvalidDepthException {
+		return dendrogram.getLevelWithClusters(k);
+	}
+
+	/**
+	 * Restituisce il livello ottenuto tagliando il dendrogramma all'altezza
+	 * specificata, cioè l'ultimo livello raggiunto con fusioni tra cluster a
+	 * distanza non superiore ad h.
+	 *
+	 * @param h l'altezza del taglio
+	 * @return il livello corrispondente al taglio
+	 */
+	public int cutAtHeight(double h) {
+		return dendrogram.getLevelAtHeight(h);
+	}
+
 	/**
 	 * Salva lo stato corrente di HierarchicalClusterMiner su un file.
 	 *
@@ -14,4 +14,14 @@ public class InvalidDepthException extends Exception {
 	public InvalidDepthException() {
 		super("La profondità del dendrogramma è superiore al numero di esempi memorizzati nel dataset.");
 	}
+
+	/**
+	 * Costruisce un nuovo oggetto InvalidDepthException con il messaggio
+	 * specificato, ad esempio per un livello non presente nel dendrogramma.
+	 *
+	 * @param message il messaggio che descrive l'errore
+	 */
+	public InvalidDepthException(String message) {
+		super(message);
+	}
 }
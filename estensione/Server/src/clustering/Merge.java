@@ -0,0 +1,88 @@
+package clustering;
+
+import java.io.Serializable;
+
+/**
+ * La classe Merge rappresenta la fusione di due cluster, ciascuno identificato
+ * da uno dei suoi esempi. Gli algoritmi di costruzione usano di norma l'esempio
+ * con indice minimo, che non cambia finché il cluster non viene fuso con un
+ * cluster contenente un esempio di indice minore.
+ */
+class Merge implements Comparable<Merge>, Serializable {
+
+	private static final long serialVersionUID = 1L;
+	private final int first;
+	private final int second;
+	private final double height;
+
+	/**
+	 * Costruisce una nuova fusione tra i cluster identificati dagli esempi
+	 * specificati.
+	 *
+	 * @param first  un esempio del primo cluster
+	 * @param second un esempio del secondo cluster
+	 * @param height la distanza tra i due cluster al momento della fusione
+	 */
+	Merge(int first, int second, double height) {
+		this.first = Math.min(first, second);
+		this.second = Math.max(first, second);
+		this.height = height;
+	}
+
+	/**
+	 * Restituisce l'esempio che identifica il primo cluster fuso.
+	 *
+	 * @return l'indice dell'esempio del primo cluster
+	 */
+	int getFirst() {
+		return first;
+	}
+
+	/**
+	 * Restituisce l'esempio che identifica il secondo cluster fuso, con indice
+	 * maggiore di quello del primo.
+	 *
+	 * @return l'indice dell'esempio del secondo cluster
+	 */
+	int getSecond() {
+		return second;
+	}
+
+	/**
+	 * Restituisce la distanza tra i due cluster al momento della fusione.
+	 *
+	 * @return l'altezza della fusione nel dendrogramma
+	 */
+	double getHeight() {
+		return height;
+	}
+
+	/**
+	 * Confronta due fusioni per altezza crescente e, a parità di altezza, per
+	 * indici crescenti dei cluster fusi, in modo da riprodurre l'ordine di scelta
+	 * di {@link ClusterSet#mergeClosestClusters}.
+	 *
+	 * @param other la fusione da confrontare
+	 * @return un valore negativo, zero o positivo se questa fusione precede, è
+	 *         equivalente o segue l'altra
+	 */
+	@Override
+	public int compareTo(Merge other) {
+		int cmp = Double.compare(height, other.height);
+		if (cmp != 0) {
+			return cmp;
+		}
+		cmp = Integer.compare(first, other.first);
+		return cmp != 0 ? cmp : Integer.compare(second, other.second);
+	}
+
+	/**
+	 * Restituisce una rappresentazione in stringa della fusione.
+	 *
+	 * @return una rappresentazione in stringa della fusione
+	 */
+	@Override
+	public String toString() {
+		return first + "+" + second + "@" + height;
+	}
+}
@@ -0,0 +1,308 @@
+package clustering;
+
+import data.Data;
+import distance.ClusterDistance;
+
+/**
+ * La classe MergeScheduler individua a ogni livello la coppia di cluster più
+ * vicina senza riesaminare tutte le coppie. Per ogni cluster viene mantenuto il
+ * vicino più prossimo tra i cluster nelle posizioni successive, e i cluster sono
+ * ordinati in una coda di priorità in base alla distanza da tale vicino.
+ * <p>
+ * Dopo una fusione i candidati che puntavano ai cluster fusi non vengono
+ * ricalcolati subito: la loro chiave resta un limite inferiore della distanza
+ * reale e il vicino viene ricalcolato solo quando il cluster raggiunge la cima
+ * della coda. A parità di distanza viene scelta la coppia con la posizione i
+ * più bassa e, a parità di i, con la posizione j più bassa, come in
+ * {@link ClusterSet#mergeClosestClusters}.
+ * <p>
+ * Se il dataset è compatto lo scheduler conta le fusioni per cui un'altra
+ * coppia di cluster ha una distanza che differisce da quella scelta meno
+ * dell'errore di arrotondamento in singola precisione: per tali fusioni
+ * l'ordine potrebbe essere diverso da quello calcolato in doppia precisione.
+ */
+class MergeScheduler {
+
+	private final ProximityMatrix matrix;
+	private final Data data;
+	private final boolean[] active;
+	private final int[] neighbor; // slot del vicino più prossimo tra gli slot successivi
+	private final double[] neighborDistance;
+	private final int[] heap; // coda di priorità degli slot, ordinata per (neighborDistance, slot)
+	private final int[] heapIndex; // posizione di ogni slot nella coda, -1 se assente
+	private int heapSize;
+	private int ambiguousMerges; // fusioni il cui ordine dipende dall'arrotondamento
+
+	/**
+	 * Costruisce lo scheduler per la matrice delle distanze specificata,
+	 * calcolando il vicino più prossimo di ogni cluster.
+	 *
+	 * @param matrix la matrice delle distanze tra i cluster del livello corrente
+	 * @param data   l'oggetto Data che contiene i dati utilizzati per l'analisi
+	 */
+	MergeScheduler(ProximityMatrix matrix, Data data) {
+		this.matrix = matrix;
+		this.data = data;
+		int n = matrix.getSize();
+		active = new boolean[n];
+		neighbor = new int[n];
+		neighborDistance = new double[n];
+		heap = new int[n];
+		heapIndex = new int[n];
+		for (int s = 0; s < n; s++) {
+			active[s] = true;
+		}
+		for (int s = 0; s < n; s++) {
+			heapIndex[s] = -1;
+			findNeighbor(s);
+			if (neighbor[s] >= 0) {
+				heap[heapSize] = s;
+				heapIndex[s] = heapSize++;
+			}
+		}
+		for (int h = heapSize / 2 - 1; h >= 0; h--) {
+			siftDown(h);
+		}
+	}
+
+	/**
+	 * Restituisce la coppia di cluster più vicina nel livello corrente.
+	 *
+	 * @return le posizioni {i, j} della coppia più vicina, con i minore di j
+	 */
+	int[] closestPair() {
+		while (true) {
+			int s = heap[0];
+			int t = neighbor[s];
+			if (active[t] && matrix.getBySlot(s, t) == neighborDistance[s]) {
+				if (data.isCompact() && isAmbiguous(s, t)) {
+					ambiguousMerges++;
+				}
+				return new int[] { matrix.getPosition(s), matrix.getPosition(t) };
+			}
+			// Candidato non più valido: ricalcola il vicino e riordina la coda
+			findNeighbor(s);
+			if (neighbor[s] >= 0) {
+				siftDown(heapIndex[s]);
+			} else {
+				remove(s);
+			}
+		}
+	}
+
+	/**
+	 * Restituisce il numero di fusioni scelte finora il cui ordine potrebbe
+	 * cambiare a causa dell'arrotondamento in singola precisione delle distanze.
+	 *
+	 * @return il numero di fusioni ambigue, nullo se il dataset non è compatto
+	 */
+	int getAmbiguousMerges() {
+		return ambiguousMerges;
+	}
+
+	/**
+	 * Fonde i cluster nelle posizioni i e j, aggiornando la matrice delle distanze
+	 * e i vicini più prossimi dei cluster interessati.
+	 *
+	 * @param i         la posizione del primo cluster fuso
+	 * @param j         la posizione del secondo cluster fuso, con j maggiore di i
+	 * @param prevLevel l'insieme di cluster precedente alla fusione
+	 * @param newLevel  l'insieme di cluster ottenuto dalla fusione
+	 * @param distance  la distanza utilizzata per calcolare la vicinanza dei
+	 *                  cluster
+	 * @param data      l'oggetto Data che contiene i dati utilizzati per il calcolo
+	 *                  della distanza
+	 */
+	void merge(int i, int j, ClusterSet prevLevel, ClusterSet newLevel, ClusterDistance distance, Data data) {
+		int a = matrix.getSlot(i);
+		int b = matrix.getSlot(j);
+		matrix.merge(i, j, prevLevel, newLevel, distance, data);
+		active[b] = false;
+		remove(b);
+
+		// Il cluster fuso ricalcola il suo vicino tra i cluster successivi
+		findNeighbor(a);
+		if (neighbor[a] >= 0) {
+			update(a);
+		} else {
+			remove(a);
+		}
+
+		// I cluster precedenti possono avere il cluster fuso come nuovo vicino
+		for (int p = 0; p < i; p++) {
+			int s = matrix.getSlot(p);
+			double d = matrix.getBySlot(s, a);
+			if (d < neighborDistance[s] || (d == neighborDistance[s] && a < neighbor[s])) {
+				neighbor[s] = a;
+				neighborDistance[s] = d;
+				update(s);
+			}
+		}
+	}
+
+	/**
+	 * Verifica se una coppia di cluster diversa da quella scelta ha una distanza
+	 * entro l'errore di arrotondamento dalla distanza minima. Vengono esaminati lo
+	 * slot scelto e gli slot della coda la cui chiave, che è un limite inferiore
+	 * della distanza dal loro vicino, non supera la soglia.
+	 *
+	 * @param s lo slot del primo cluster della coppia scelta, in cima alla coda
+	 * @param t lo slot del secondo cluster della coppia scelta
+	 * @return true se l'ordine della fusione dipende dall'arrotondamento
+	 */
+	private boolean isAmbiguous(int s, int t) {
+		double min = neighborDistance[s];
+		double limit = min + 2 * data.getRoundingError(min);
+		if (hasPairWithin(s, t, limit)) {
+			return true;
+		}
+		int[] stack = new int[heapSize];
+		int top = 0;
+		stack[top++] = 0;
+		while (top > 0) {
+			int h = stack[--top];
+			int x = heap[h];
+			if (neighborDistance[x] > limit) {
+				continue;
+			}
+			if (x != s && hasPairWithin(x, -1, limit)) {
+				return true;
+			}
+			for (int child = 2 * h + 1; child <= 2 * h + 2 && child < heapSize; child++) {
+				stack[top++] = child;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Verifica se lo slot specificato ha, tra gli slot attivi successivi diversi
+	 * da quello escluso, un cluster a distanza non superiore alla soglia.
+	 *
+	 * @param s        lo slot da esaminare
+	 * @param excluded lo slot da ignorare, -1 per esaminarli tutti
+	 * @param limit    la soglia
+	 * @return true se esiste un cluster a distanza non superiore alla soglia
+	 */
+	private boolean hasPairWithin(int s, int excluded, double limit) {
+		for (int t = s + 1; t < active.length; t++) {
+			if (active[t] && t != excluded && matrix.getBySlot(s, t) <= limit) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Calcola il vicino più prossimo dello slot specificato tra gli slot attivi
+	 * successivi; a parità di distanza viene scelto lo slot minore.
+	 *
+	 * @param s lo slot di cui calcolare il vicino
+	 */
+	private void findNeighbor(int s) {
+		int best = -1;
+		double minDistance = Double.POSITIVE_INFINITY;
+		for (int t = s + 1; t < active.length; t++) {
+			if (active[t]) {
+				double d = matrix.getBySlot(s, t);
+				if (best < 0 || d < minDistance) {
+					best = t;
+					minDistance = d;
+				}
+			}
+		}
+		neighbor[s] = best;
+		neighborDistance[s] = minDistance;
+	}
+
+	/**
+	 * Riposiziona nella coda lo slot specificato dopo una modifica della sua
+	 * chiave.
+	 *
+	 * @param s lo slot da riposizionare
+	 */
+	private void update(int s) {
+		siftUp(heapIndex[s]);
+		siftDown(heapIndex[s]);
+	}
+
+	/**
+	 * Rimuove dalla coda lo slot specificato, se presente.
+	 *
+	 * @param s lo slot da rimuovere
+	 */
+	private void remove(int s) {
+		int h = heapIndex[s];
+		if (h < 0) {
+			return;
+		}
+		heapIndex[s] = -1;
+		heapSize--;
+		if (h < heapSize) {
+			int moved = heap[heapSize];
+			heap[h] = moved;
+			heapIndex[moved] = h;
+			update(moved);
+		}
+	}
+
+	/**
+	 * Verifica se lo slot s precede lo slot t nella coda.
+	 *
+	 * @param s il primo slot
+	 * @param t il secondo slot
+	 * @return true se s ha una chiave minore di t o, a parità, un indice minore
+	 */
+	private boolean precedes(int s, int t) {
+		if (neighborDistance[s] != neighborDistance[t]) {
+			return neighborDistance[s] < neighborDistance[t];
+		}
+		return s < t;
+	}
+
+	/**
+	 * Sposta verso la cima della coda l'elemento nella posizione specificata.
+	 *
+	 * @param h la posizione nella coda
+	 */
+	private void siftUp(int h) {
+		int s = heap[h];
+		while (h > 0) {
+			int parent = (h - 1) / 2;
+			if (!precedes(s, heap[parent])) {
+				break;
+			}
+			heap[h] = heap[parent];
+			heapIndex[heap[h]] = h;
+			h = parent;
+		}
+		heap[h] = s;
+		heapIndex[s] = h;
+	}
+
+	/**
+	 * Sposta verso il fondo della coda l'elemento nella posizione specificata.
+	 *
+	 * @param h la posizione nella coda
+	 */
+	private void siftDown(int h) {
+		int s = heap[h];
+		while (true) {
+			int child = 2 * h + 1;
+			if (child >= heapSize) {
+				break;
+			}
+			if (child + 1 < heapSize && precedes(heap[child + 1], heap[child])) {
+				child++;
+			}
+			if (!precedes(heap[child], s)) {
+				break;
+			}
+			heap[h] = heap[child];
+			heapIndex[heap[h]] = h;
+			h = child;
+		}
+		heap[h] = s;
+		heapIndex[s] = h;
+	}
+}
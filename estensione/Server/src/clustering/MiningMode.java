@@ -0,0 +1,62 @@
+package clustering;
+
+/**
+ * Modalità di costruzione del dendrogramma disponibili in
+ * {@link HierarchicalClusterMiner}. Tutte le modalità, tranne
+ * {@link #NEIGHBOR_GRAPH}, producono lo stesso dendrogramma e differiscono solo
+ * per il costo computazionale.
+ */
+public enum MiningMode {
+
+	/**
+	 * A ogni livello vengono ricalcolate le distanze tra tutte le coppie di
+	 * cluster.
+	 */
+	EXHAUSTIVE,
+
+	/**
+	 * Come {@link #EXHAUSTIVE}, ma la ricerca della coppia più vicina a ogni
+	 * livello viene suddivisa in blocchi di righe elaborati in parallelo su tutti i
+	 * processori disponibili.
+	 */
+	PARALLEL,
+
+	/**
+	 * Le distanze tra i cluster sono mantenute in una matrice, aggiornata dopo
+	 * ogni fusione solo per il cluster appena creato: con la formula di
+	 * Lance-Williams se la distanza la fornisce, altrimenti a partire dalle
+	 * distanze tra gli esempi, calcolate una sola volta.
+	 */
+	DISTANCE_MATRIX,
+
+	/**
+	 * La sequenza completa delle fusioni viene calcolata con l'algoritmo della
+	 * catena dei vicini più prossimi, con costo O(n^2), e i livelli vengono
+	 * ricostruiti ordinando le fusioni per altezza. Richiede una distanza
+	 * riducibile con formula di Lance-Williams; per le altre distanze, o se ci
+	 * sono distanze in pareggio, si comporta come {@link #DISTANCE_MATRIX}.
+	 */
+	NN_CHAIN,
+
+	/**
+	 * Con la distanza single-link le fusioni vengono ricavate dall'albero di
+	 * copertura minimo degli esempi, calcolato in tempo O(n^2) e memoria O(n)
+	 * senza memorizzare alcuna matrice delle distanze; con esempi di al più otto
+	 * valori l'albero è calcolato con l'algoritmo di Borůvka su un indice
+	 * spaziale, senza confrontare tutte le coppie di esempi. Per le altre
+	 * distanze si comporta come {@link #NN_CHAIN}.
+	 */
+	SPANNING_TREE,
+
+	/**
+	 * Con la distanza single-link le fusioni vengono ricavate da un albero di
+	 * copertura approssimato, costruito considerando solo le coppie di esempi
+	 * collegate nel grafo approssimato dei vicini più prossimi, con un costo in
+	 * pratica sub-quadratico. Il dendrogramma può differire da quello esatto
+	 * nelle fusioni tra esempi lontani e, a parità di distanza, nell'ordine delle
+	 * fusioni; la qualità del grafo può essere stimata
+	 * con {@link HierarchicalClusterMiner#getGraphRecall(int)}. Per le altre
+	 * distanze si comporta come {@link #NN_CHAIN}.
+	 */
+	NEIGHBOR_GRAPH
+}
@@ -0,0 +1,199 @@
+package clustering;
+
+import data.Data;
+import distance.LanceWilliamsDistance;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * La classe NearestNeighborChain calcola la sequenza completa delle fusioni con
+ * l'algoritmo della catena dei vicini più prossimi. La catena viene estesa con
+ * il cluster più vicino all'ultimo elemento finché non si trovano due vicini
+ * reciproci, che vengono fusi. Per le distanze riducibili la sequenza ottenuta,
+ * ordinata per altezza, coincide con quella della ricerca della coppia più
+ * vicina a ogni livello, con un costo complessivo O(n^2), purché non ci siano
+ * pareggi tra le distanze (vedi {@link #hasTies()}).
+ */
+class NearestNeighborChain {
+
+	private final ClusterSet baseLevel;
+	private final ProximityMatrix matrix;
+	private final LanceWilliamsDistance distance;
+	private final Data data;
+	private final Cluster[] clusters; // cluster di ogni slot, solo se la formula di aggiornamento non è esatta
+	private final boolean[] active;
+	private final int[] sizes;
+	private final int[] chain;
+	private int chainLength;
+	private boolean ties; // true se una ricerca del vicino ha trovato più candidati alla stessa distanza
+
+	/**
+	 * Prepara il calcolo delle fusioni a partire dal livello base specificato.
+	 *
+	 * @param baseLevel il livello base, formato da un cluster per ogni esempio
+	 * @param distance  la distanza riducibile utilizzata per calcolare la
+	 *                  vicinanza dei cluster
+	 * @param data      l'oggetto Data che contiene i dati utilizzati per il calcolo
+	 *                  della distanza
+	 */
+	NearestNeighborChain(ClusterSet baseLevel, LanceWilliamsDistance distance, Data data) {
+		int n = baseLevel.getSize();
+		this.baseLevel = baseLevel;
+		this.matrix = new ProximityMatrix(baseLevel, distance, data);
+		this.distance = distance;
+		this.data = data;
+		clusters = distance.isExactUpdate() ? null : new Cluster[n];
+		active = new boolean[n];
+		sizes = new int[n];
+		chain = new int[n];
+		for (int s = 0; s < n; s++) {
+			active[s] = true;
+			sizes[s] = 1;
+			if (clusters != null) {
+				clusters[s] = baseLevel.get(s);
+			}
+		}
+	}
+
+	/**
+	 * Calcola tutte le fusioni fino a ottenere un unico cluster. Il calcolo si
+	 * interrompe non appena una ricerca del vicino trova distanze in pareggio
+	 * (vedi {@link #hasTies()}), perché in quel caso le fusioni andrebbero
+	 * comunque ricalcolate con la matrice delle distanze.
+	 *
+	 * @return le fusioni, nell'ordine in cui sono state individuate
+	 */
+	List<Merge> computeMerges() {
+		int n = active.length;
+		List<Merge> merges = new ArrayList<>(Math.max(n - 1, 0));
+		int next = 0; // primo slot da cui far ripartire una catena vuota
+		for (int remaining = n; remaining > 1 && !ties; remaining--) {
+			if (chainLength == 0) {
+				while (!active[next]) {
+					next++;
+				}
+				chain[chainLength++] = next;
+			}
+			while (true) {
+				int a = chain[chainLength - 1];
+				int previous = chainLength > 1 ? chain[chainLength - 2] : -1;
+				int b = nearestNeighbor(a, previous);
+				if (ties) {
+					break;
+				}
+				if (b == previous) {
+					chainLength -= 2;
+					merges.add(merge(a, b));
+					break;
+				}
+				chain[chainLength++] = b;
+			}
+		}
+		return merges;
+	}
+
+	/**
+	 * Indica se durante il calcolo delle fusioni almeno una ricerca del vicino più
+	 * prossimo ha trovato più cluster alla stessa distanza minima. In presenza di
+	 * pareggi l'ordine delle fusioni può differire da quello di
+	 * {@link ClusterSet#mergeClosestClusters}, che sceglie sempre la coppia con le
+	 * posizioni più basse.
+	 *
+	 * @return true se sono stati trovati pareggi, false altrimenti
+	 */
+	boolean hasTies() {
+		return ties;
+	}
+
+	/**
+	 * Restituisce la matrice delle distanze utilizzata dalla catena, dopo averla
+	 * riportata alle distanze tra i cluster del livello base, in modo che possa
+	 * essere riutilizzata invece di costruirne un'altra. Dopo l'invocazione la
+	 * catena non può più essere utilizzata.
+	 *
+	 * @return la matrice delle distanze tra i cluster del livello base
+	 */
+	ProximityMatrix restoreMatrix() {
+		for (boolean a : active) {
+			if (!a) {
+				matrix.fill(baseLevel, distance, data);
+				break;
+			}
+		}
+		return matrix;
+	}
+
+	/**
+	 * Rilascia la matrice delle distanze utilizzata dalla catena, se non è stata
+	 * ottenuta con {@link #restoreMatrix()}. Dopo l'invocazione la catena non può
+	 * più essere utilizzata.
+	 */
+	void close() {
+		matrix.close();
+	}
+
+	/**
+	 * Restituisce lo slot attivo più vicino a quello specificato. A parità di
+	 * distanza viene preferito l'elemento precedente della catena, che garantisce
+	 * la terminazione, e poi lo slot con indice minore.
+	 *
+	 * @param a        lo slot di cui cercare il vicino
+	 * @param previous l'elemento precedente della catena, -1 se assente
+	 * @return lo slot del cluster più vicino
+	 */
+	private int nearestNeighbor(int a, int previous) {
+		int best = previous;
+		double minDistance = previous >= 0 ? matrix.getBySlot(a, previous) : Double.POSITIVE_INFINITY;
+		boolean tie = false;
+		for (int t = 0; t < active.length; t++) {
+			if (active[t] && t != a && t != previous) {
+				double d = matrix.getBySlot(a, t);
+				if (d < minDistance || best < 0) {
+					minDistance = d;
+					best = t;
+					tie = false;
+				} else if (d == minDistance) {
+					tie = true;
+				}
+			}
+		}
+		ties |= tie;
+		return best;
+	}
+
+	/**
+	 * Fonde i cluster negli slot specificati: il cluster fuso occupa lo slot
+	 * minore, che corrisponde all'esempio con indice minimo, e le sue distanze
+	 * vengono aggiornate con la formula di Lance-Williams se è esatta, altrimenti
+	 * ricalcolate sul cluster fuso come nella ricerca esaustiva.
+	 *
+	 * @param a il primo slot
+	 * @param b il secondo slot
+	 * @return la fusione effettuata
+	 */
+	private Merge merge(int a, int b) {
+		int s = Math.min(a, b);
+		int t = Math.max(a, b);
+		double dst = matrix.getBySlot(s, t);
+		if (clusters != null) {
+			clusters[s] = clusters[s].mergeCluster(clusters[t]);
+			clusters[t] = null;
+		}
+		for (int k = 0; k < active.length; k++) {
+			if (!active[k] || k == s || k == t) {
+				continue;
+			}
+			if (clusters == null) {
+				matrix.setBySlot(s, k, distance.update(matrix.getBySlot(s, k), matrix.getBySlot(t, k), dst,
+						sizes[s], sizes[t], sizes[k]));
+			} else {
+				matrix.setBySlot(s, k, k < s ? distance.distance(clusters[k], clusters[s], data)
+						: distance.distance(clusters[s], clusters[k], data));
+			}
+		}
+		active[t] = false;
+		sizes[s] += sizes[t];
+		return new Merge(s, t, dst);
+	}
+}
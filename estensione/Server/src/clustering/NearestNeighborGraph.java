@@ -0,0 +1,390 @@
+package clustering;
+
+import data.Data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * La classe NearestNeighborGraph costruisce un grafo approssimato dei k vicini
+ * più prossimi degli esempi con l'algoritmo NN-descent: partendo da vicini
+ * casuali, ogni esempio confronta tra loro i propri vicini e quelli degli
+ * esempi di cui è vicino, secondo il principio che il vicino di un vicino è
+ * probabilmente un vicino. Il numero di distanze calcolate cresce in pratica
+ * come O(n^1.14) invece di O(n^2).
+ * <p>
+ * Il grafo viene usato da {@link MiningMode#NEIGHBOR_GRAPH} per il clustering
+ * single-link ristretto al grafo (vedi {@link #computeMerges()}), che considera
+ * solo le coppie di esempi collegate da un arco. La qualità del grafo può essere
+ * misurata con {@link #recall(int, long)}.
+ */
+class NearestNeighborGraph {
+
+	private static final int MAX_ITERATIONS = 12; // numero massimo di passi di NN-descent
+	private static final double MIN_UPDATES = 0.001; // frazione di aggiornamenti sotto cui fermarsi
+	private static final int REPRESENTATIVES = 16; // esempi per componente usati per collegare le componenti
+
+	private final Data data;
+	private final int n;
+	private final int k;
+	private final Random random;
+	private final int[][] neighbors; // vicini di ogni esempio, per distanza crescente
+	private final double[][] distances; // distanze dai vicini
+	private final boolean[][] fresh; // vicini non ancora confrontati tra loro
+
+	/**
+	 * Costruisce il grafo dei k vicini approssimati degli esempi del dataset.
+	 *
+	 * @param data il dataset
+	 * @param k    il numero di vicini di ogni esempio
+	 * @param seed il seme per la scelta casuale dei vicini iniziali
+	 */
+	NearestNeighborGraph(Data data, int k, long seed) {
+		this.data = data;
+		this.n = data.getNumberOfExamples();
+		this.k = Math.max(Math.min(k, n - 1), 0);
+		this.random = new Random(seed);
+		neighbors = new int[n][this.k];
+		distances = new double[n][this.k];
+		fresh = new boolean[n][this.k];
+		initialize();
+		descend();
+	}
+
+	/**
+	 * Assegna a ogni esempio k vicini distinti scelti a caso.
+	 */
+	private void initialize() {
+		for (int v = 0; v < n; v++) {
+			Arrays.fill(neighbors[v], -1);
+			Arrays.fill(distances[v], Double.POSITIVE_INFINITY);
+			int added = 0;
+			while (added < k) {
+				int u = random.nextInt(n);
+				if (u != v && insert(v, u, data.getDistance(v, u))) {
+					added++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Migliora i vicini confrontando, per ogni esempio, i suoi vicini diretti e
+	 * inversi, finché il numero di vicini aggiornati in un passo scende sotto una
+	 * piccola frazione di nk. A ogni passo vengono confrontate solo le coppie che
+	 * contengono almeno un vicino nuovo.
+	 */
+	private void descend() {
+		for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+			List<List<Integer>> oldLists = new ArrayList<>(n);
+			List<List<Integer>> newLists = new ArrayList<>(n);
+			for (int v = 0; v < n; v++) {
+				oldLists.add(new ArrayList<>());
+				newLists.add(new ArrayList<>());
+			}
+			for (int v = 0; v < n; v++) {
+				for (int j = 0; j < k; j++) {
+					int u = neighbors[v][j];
+					if (fresh[v][j]) {
+						fresh[v][j] = false;
+						newLists.get(v).add(u);
+						addReverse(newLists.get(u), v);
+					} else {
+						oldLists.get(v).add(u);
+						addReverse(oldLists.get(u), v);
+					}
+				}
+			}
+
+			long updates = 0;
+			for (int v = 0; v < n; v++) {
+				List<Integer> newer = newLists.get(v);
+				List<Integer> older = oldLists.get(v);
+				for (int a = 0; a < newer.size(); a++) {
+					int p = newer.get(a);
+					for (int b = a + 1; b < newer.size(); b++) {
+						updates += join(p, newer.get(b));
+					}
+					for (int q : older) {
+						updates += join(p, q);
+					}
+				}
+			}
+			if (updates <= MIN_UPDATES * n * k) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Aggiunge un vicino inverso alla lista, limitata a k elementi: oltre il
+	 * limite l'elemento sostituisce a caso uno di quelli presenti.
+	 *
+	 * @param list la lista dei vicini inversi
+	 * @param v    l'esempio da aggiungere
+	 */
+	private void addReverse(List<Integer> list, int v) {
+		if (list.size() < k) {
+			list.add(v);
+		} else {
+			int position = random.nextInt(list.size() + 1);
+			if (position < list.size()) {
+				list.set(position, v);
+			}
+		}
+	}
+
+	/**
+	 * Confronta due esempi, proponendo ciascuno come vicino dell'altro.
+	 *
+	 * @param p il primo esempio
+	 * @param q il secondo esempio
+	 * @return il numero di liste di vicini modificate
+	 */
+	private int join(int p, int q) {
+		if (p == q) {
+			return 0;
+		}
+		double d = data.getDistance(p, q);
+		int updates = 0;
+		if (insert(p, q, d)) {
+			updates++;
+		}
+		if (insert(q, p, d)) {
+			updates++;
+		}
+		return updates;
+	}
+
+	/**
+	 * Inserisce un esempio tra i vicini di v, nella posizione data dalla sua
+	 * distanza (a parità di distanza dal suo indice), se è più vicino dell'ultimo
+	 * vicino e non è già presente.
+	 *
+	 * @param v il vertice
+	 * @param u l'esempio da inserire
+	 * @param d la distanza tra v e u
+	 * @return true se i vicini di v sono cambiati, false altrimenti
+	 */
+	private boolean insert(int v, int u, double d) {
+		int[] ids = neighbors[v];
+		double[] ds = distances[v];
+		if (k == 0 || !closer(d, u, ds[k - 1], ids[k - 1])) {
+			return false;
+		}
+		for (int j = 0; j < k; j++) {
+			if (ids[j] == u) {
+				return false;
+			}
+		}
+		int position = k - 1;
+		while (position > 0 && closer(d, u, ds[position - 1], ids[position - 1])) {
+			ids[position] = ids[position - 1];
+			ds[position] = ds[position - 1];
+			fresh[v][position] = fresh[v][position - 1];
+			position--;
+		}
+		ids[position] = u;
+		ds[position] = d;
+		fresh[v][position] = true;
+		return true;
+	}
+
+	/**
+	 * Confronta due candidati vicini per distanza e, a parità, per indice.
+	 *
+	 * @param d1 la distanza del primo candidato
+	 * @param u1 l'indice del primo candidato
+	 * @param d2 la distanza del secondo candidato
+	 * @param u2 l'indice del secondo candidato, -1 se assente
+	 * @return true se il primo candidato precede il secondo
+	 */
+	private static boolean closer(double d1, int u1, double d2, int u2) {
+		return d1 < d2 || (d1 == d2 && (u2 < 0 || u1 < u2));
+	}
+
+	/**
+	 * Calcola le fusioni del clustering single-link ristretto al grafo, applicando
+	 * gli archi dell'albero di copertura per peso crescente (a parità di peso,
+	 * nell'ordine degli indici degli estremi). Ogni fusione è identificata dagli
+	 * esempi con indice minimo dei due cluster, come in
+	 * {@link SingleLinkSpanningTree}.
+	 *
+	 * @return le n-1 fusioni, nell'ordine in cui vanno applicate
+	 */
+	List<Merge> computeMerges() {
+		Merge[] tree = spanningTree();
+		Arrays.sort(tree);
+		int[] parent = new int[n];
+		for (int v = 0; v < n; v++) {
+			parent[v] = v;
+		}
+		List<Merge> merges = new ArrayList<>(tree.length);
+		for (Merge edge : tree) {
+			int a = find(parent, edge.getFirst());
+			int b = find(parent, edge.getSecond());
+			parent[Math.max(a, b)] = Math.min(a, b);
+			merges.add(new Merge(a, b, edge.getHeight()));
+		}
+		return merges;
+	}
+
+	/**
+	 * Costruisce un albero di copertura degli esempi a partire dagli archi del
+	 * grafo. Con l'algoritmo di Kruskal si ottiene la foresta di copertura minima
+	 * del grafo; se il grafo non è connesso, ad esempio per gruppi di esempi ben
+	 * separati, le componenti vengono collegate con l'algoritmo di Prim
+	 * considerando solo alcuni esempi di ogni componente, scelti a caso. L'albero
+	 * coincide con quello minimo se ogni arco di quest'ultimo collega due vicini
+	 * del grafo.
+	 *
+	 * @return gli n-1 archi dell'albero, come fusioni tra i loro estremi
+	 */
+	private Merge[] spanningTree() {
+		List<Merge> tree = new ArrayList<>(Math.max(n - 1, 0));
+		Merge[] edges = new Merge[n * k];
+		int size = 0;
+		for (int v = 0; v < n; v++) {
+			for (int j = 0; j < k; j++) {
+				edges[size++] = new Merge(v, neighbors[v][j], distances[v][j]);
+			}
+		}
+		Arrays.sort(edges);
+		int[] parent = new int[n];
+		for (int v = 0; v < n; v++) {
+			parent[v] = v;
+		}
+		for (Merge edge : edges) {
+			int a = find(parent, edge.getFirst());
+			int b = find(parent, edge.getSecond());
+			if (a != b) {
+				parent[Math.max(a, b)] = Math.min(a, b);
+				tree.add(edge);
+			}
+		}
+		if (tree.size() < n - 1) {
+			connectComponents(parent, tree);
+		}
+		return tree.toArray(new Merge[0]);
+	}
+
+	/**
+	 * Collega le componenti della foresta con l'algoritmo di Prim sul grafo
+	 * completo dei rappresentanti delle componenti, in cui i rappresentanti della
+	 * stessa componente sono già collegati. Ogni componente è rappresentata da al
+	 * più {@value #REPRESENTATIVES} esempi scelti a caso.
+	 *
+	 * @param parent la struttura union-find delle componenti
+	 * @param tree   la foresta, a cui aggiungere gli archi tra le componenti
+	 */
+	private void connectComponents(int[] parent, List<Merge> tree) {
+		int[] order = new int[n];
+		for (int v = 0; v < n; v++) {
+			order[v] = v;
+		}
+		for (int v = n - 1; v > 0; v--) {
+			int w = random.nextInt(v + 1);
+			int tmp = order[v];
+			order[v] = order[w];
+			order[w] = tmp;
+		}
+		int[] taken = new int[n];
+		int[] representatives = new int[n];
+		int m = 0;
+		for (int v : order) {
+			int root = find(parent, v);
+			if (taken[root] < REPRESENTATIVES) {
+				taken[root]++;
+				representatives[m++] = v;
+			}
+		}
+
+		boolean[] inTree = new boolean[m];
+		double[] minDistance = new double[m];
+		int[] closest = new int[m];
+		Arrays.fill(minDistance, Double.POSITIVE_INFINITY);
+		int component = find(parent, representatives[0]);
+		while (true) {
+			// Aggiunge all'albero tutti i rappresentanti della componente raggiunta
+			for (int r = 0; r < m; r++) {
+				if (!inTree[r] && find(parent, representatives[r]) == component) {
+					inTree[r] = true;
+					for (int s = 0; s < m; s++) {
+						if (!inTree[s] && find(parent, representatives[s]) != component) {
+							double d = data.getDistance(representatives[r], representatives[s]);
+							if (d < minDistance[s]) {
+								minDistance[s] = d;
+								closest[s] = representatives[r];
+							}
+						}
+					}
+				}
+			}
+			int next = -1;
+			for (int s = 0; s < m; s++) {
+				if (!inTree[s] && (next < 0 || minDistance[s] < minDistance[next])) {
+					next = s;
+				}
+			}
+			if (next < 0) {
+				return;
+			}
+			tree.add(new Merge(closest[next], representatives[next], minDistance[next]));
+			component = find(parent, representatives[next]);
+		}
+	}
+
+	/**
+	 * Stima la frazione dei veri k vicini più prossimi trovata dal grafo, su un
+	 * campione casuale di esempi di cui i vicini vengono calcolati in modo
+	 * esatto. Un vicino del grafo è considerato corretto se non è più lontano del
+	 * k-esimo vero vicino, così che i pareggi non riducano la stima.
+	 *
+	 * @param sampleSize il numero di esempi del campione
+	 * @param seed       il seme per la scelta del campione
+	 * @return la frazione dei vicini trovati, tra 0 e 1
+	 */
+	double recall(int sampleSize, long seed) {
+		if (k == 0) {
+			return 1.0;
+		}
+		Random sampler = new Random(seed);
+		int size = Math.min(sampleSize, n);
+		long found = 0;
+		double[] exact = new double[n - 1];
+		for (int s = 0; s < size; s++) {
+			int v = sampleSize >= n ? s : sampler.nextInt(n);
+			int count = 0;
+			for (int u = 0; u < n; u++) {
+				if (u != v) {
+					exact[count++] = data.getDistance(v, u);
+				}
+			}
+			Arrays.sort(exact);
+			double limit = exact[k - 1];
+			for (int j = 0; j < k; j++) {
+				if (distances[v][j] <= limit) {
+					found++;
+				}
+			}
+		}
+		return size == 0 ? 1.0 : (double) found / ((long) size * k);
+	}
+
+	/**
+	 * Restituisce la radice della componente che contiene l'esempio specificato.
+	 *
+	 * @param parent la struttura union-find
+	 * @param x      l'indice dell'esempio
+	 * @return l'indice minimo della componente che contiene x
+	 */
+	private static int find(int[] parent, int x) {
+		while (parent[x] != x) {
+			parent[x] = parent[parent[x]];
+			x = parent[x];
+		}
+		return x;
+	}
+}
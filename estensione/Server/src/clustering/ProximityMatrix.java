@@ -0,0 +1,197 @@
+package clustering;
+
+import data.Data;
+import data.DistanceMatrix;
+import distance.ClusterDistance;
+import distance.LanceWilliamsDistance;
+
+import java.util.Arrays;
+
+/**
+ * La classe ProximityMatrix memorizza le distanze tra i cluster di un livello
+ * del dendrogramma, in modo che a ogni fusione sia necessario ricalcolare solo
+ * le distanze del cluster appena creato.
+ * <p>
+ * Ogni cluster occupa uno slot della matrice; gli slot dei cluster ancora attivi
+ * sono mantenuti nello stesso ordine delle posizioni dei cluster nel
+ * {@link ClusterSet} corrente. Se il dataset è compatto le distanze sono
+ * memorizzate in singola precisione.
+ */
+class ProximityMatrix {
+
+	private final DistanceMatrix distances; // distanze tra gli slot
+	private final int[] slots; // slot dei cluster attivi, nell'ordine delle posizioni
+	private int size;
+
+	/**
+	 * Costruisce la matrice delle distanze tra tutti i cluster dell'insieme
+	 * specificato, calcolandole in parallelo. La distanza deve quindi poter essere
+	 * calcolata da più thread contemporaneamente.
+	 *
+	 * @param clusters l'insieme di cluster iniziale
+	 * @param distance la distanza utilizzata per calcolare la vicinanza dei cluster
+	 * @param data     l'oggetto Data che contiene i dati utilizzati per il calcolo
+	 *                 della distanza
+	 */
+	ProximityMatrix(ClusterSet clusters, ClusterDistance distance, Data data) {
+		size = clusters.getSize();
+		slots = new int[size];
+		for (int s = 0; s < size; s++) {
+			slots[s] = s;
+		}
+		distances = DistanceMatrix.create(size, data.isCompact());
+		fill(clusters, distance, data);
+	}
+
+	/**
+	 * Ricalcola in parallelo le distanze tra gli slot a partire dall'insieme di
+	 * cluster specificato, che deve avere tanti cluster quanti sono gli slot. Gli
+	 * slot non vengono modificati, per cui la matrice deve avere ancora tutti i
+	 * cluster attivi.
+	 *
+	 * @param clusters l'insieme di cluster, uno per ogni slot
+	 * @param distance la distanza utilizzata per calcolare la vicinanza dei cluster
+	 * @param data     l'oggetto Data che contiene i dati utilizzati per il calcolo
+	 *                 della distanza
+	 */
+	void fill(ClusterSet clusters, ClusterDistance distance, Data data) {
+		distances.fill((s, t) -> distance.distance(clusters.get(s), clusters.get(t), data));
+	}
+
+	/**
+	 * Rilascia la memoria occupata dalle distanze, che può essere un file
+	 * temporaneo (vedi {@link DistanceMatrix#close()}). La matrice non può più
+	 * essere utilizzata.
+	 */
+	void close() {
+		distances.close();
+	}
+
+	/**
+	 * Restituisce la distanza tra i cluster nelle posizioni specificate.
+	 *
+	 * @param i la posizione del primo cluster
+	 * @param j la posizione del secondo cluster, diversa da i
+	 * @return la distanza tra i due cluster
+	 */
+	double get(int i, int j) {
+		return getBySlot(slots[i], slots[j]);
+	}
+
+	/**
+	 * Imposta la distanza tra i cluster nelle posizioni specificate.
+	 *
+	 * @param i     la posizione del primo cluster
+	 * @param j     la posizione del secondo cluster, diversa da i
+	 * @param value la nuova distanza
+	 */
+	void set(int i, int j, double value) {
+		setBySlot(slots[i], slots[j], value);
+	}
+
+	/**
+	 * Restituisce la distanza tra i cluster che occupano gli slot specificati.
+	 *
+	 * @param s il primo slot
+	 * @param t il secondo slot, diverso da s
+	 * @return la distanza tra i due cluster
+	 */
+	double getBySlot(int s, int t) {
+		return distances.get(s, t);
+	}
+
+	/**
+	 * Imposta la distanza tra i cluster che occupano gli slot specificati.
+	 *
+	 * @param s     il primo slot
+	 * @param t     il secondo slot, diverso da s
+	 * @param value la nuova distanza
+	 */
+	void setBySlot(int s, int t, double value) {
+		distances.set(s, t, value);
+	}
+
+	/**
+	 * Restituisce il numero di cluster attivi nella matrice.
+	 *
+	 * @return il numero di cluster attivi
+	 */
+	int getSize() {
+		return size;
+	}
+
+	/**
+	 * Restituisce lo slot del cluster nella posizione specificata.
+	 *
+	 * @param i la posizione del cluster
+	 * @return lo slot occupato dal cluster
+	 */
+	int getSlot(int i) {
+		return slots[i];
+	}
+
+	/**
+	 * Restituisce la posizione del cluster che occupa lo slot specificato.
+	 *
+	 * @param s lo slot di un cluster attivo
+	 * @return la posizione del cluster
+	 */
+	int getPosition(int s) {
+		return Arrays.binarySearch(slots, 0, size, s);
+	}
+
+	/**
+	 * Aggiorna la matrice dopo la fusione dei cluster nelle posizioni i e j: lo
+	 * slot del cluster j viene rimosso e le distanze del cluster fuso, che occupa
+	 * la posizione i, vengono aggiornate rispetto a tutti gli altri cluster. Se la
+	 * distanza implementa {@link LanceWilliamsDistance} con una formula di
+	 * aggiornamento esatta le nuove distanze sono ottenute dalla formula,
+	 * altrimenti vengono ricalcolate.
+	 *
+	 * @param i         la posizione del primo cluster fuso
+	 * @param j         la posizione del secondo cluster fuso, con j maggiore di i
+	 * @param prevLevel l'insieme di cluster precedente alla fusione
+	 * @param newLevel  l'insieme di cluster ottenuto dalla fusione
+	 * @param distance  la distanza utilizzata per calcolare la vicinanza dei
+	 *                  cluster
+	 * @param data      l'oggetto Data che contiene i dati utilizzati per il calcolo
+	 *                  della distanza
+	 */
+	void merge(int i, int j, ClusterSet prevLevel, ClusterSet newLevel, ClusterDistance distance, Data data) {
+		if (distance instanceof LanceWilliamsDistance && ((LanceWilliamsDistance) distance).isExactUpdate()) {
+			LanceWilliamsDistance update = (LanceWilliamsDistance) distance;
+			int ni = prevLevel.get(i).getSize();
+			int nj = prevLevel.get(j).getSize();
+			double dij = get(i, j);
+			for (int k = 0; k < size; k++) {
+				if (k != i && k != j) {
+					int nk = prevLevel.get(k).getSize();
+					set(i, k, update.update(get(i, k), get(j, k), dij, ni, nj, nk));
+				}
+			}
+			removeSlot(j);
+			return;
+		}
+
+		removeSlot(j);
+		Cluster merged = newLevel.get(i);
+		for (int k = 0; k < size; k++) {
+			if (k < i) {
+				set(k, i, distance.distance(newLevel.get(k), merged, data));
+			} else if (k > i) {
+				set(i, k, distance.distance(merged, newLevel.get(k), data));
+			}
+		}
+	}
+
+	/**
+	 * Rimuove lo slot del cluster nella posizione specificata, spostando indietro
+	 * gli slot successivi.
+	 *
+	 * @param j la posizione del cluster da rimuovere
+	 */
+	void removeSlot(int j) {
+		System.arraycopy(slots, j + 1, slots, j, size - j - 1);
+		size--;
+	}
+}
@@ -0,0 +1,208 @@
+package clustering;
+
+import data.Data;
+import data.Example;
+import data.NoDataException;
+import distance.ClusterDistance;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * La classe SampleAssignment estende a un'intera tabella i livelli di un
+ * dendrogramma costruito su un campione delle sue righe (vedi
+ * {@link Data#sample(String, int, long)}): ogni riga che non fa parte del
+ * campione viene assegnata, per ciascuno dei livelli richiesti, al cluster più
+ * vicino secondo la distanza utilizzata per il dendrogramma (vedi
+ * {@link ClusterDistance#distance(Cluster, double[], Data)}). Le righe del
+ * campione vengono riconosciute dalla loro posizione nella tabella (vedi
+ * {@link Data#getSourceRow(int)}), per cui le righe con gli stessi valori di
+ * una riga del campione vengono comunque assegnate.
+ * <p>
+ * Le righe vengono lette una alla volta e assegnate a blocchi elaborati in
+ * parallelo, senza essere conservate: per ogni cluster viene mantenuto solo il
+ * numero di righe assegnate, per cui la memoria occupata non dipende dalla
+ * dimensione della tabella.
+ */
+public class SampleAssignment {
+
+	private static final int BATCH_SIZE = 4096; // numero di righe assegnate in parallelo
+
+	private final Data sample;
+	private final ClusterDistance distance;
+	private final int from; // primo livello richiesto
+	private final ClusterSet[] levels; // cluster di ciascun livello richiesto
+	private final long[][] assigned; // righe assegnate a ciascun cluster di ciascun livello
+	private final int[] sampled; // esempi del campione, in ordine di posizione nella tabella
+	private final List<double[]> batch = new ArrayList<>(BATCH_SIZE);
+	private int nextSampled; // posizione in sampled del prossimo esempio del campione da incontrare
+	private long rows; // righe lette finora
+
+	/**
+	 * Prepara l'assegnazione delle righe ai livelli compresi tra from e to,
+	 * estremi inclusi, del dendrogramma costruito sul campione specificato.
+	 *
+	 * @param miner    il dendrogramma costruito sul campione
+	 * @param sample   il campione su cui è stato costruito il dendrogramma,
+	 *                 estratto con {@link Data#sample(String, int, long)}
+	 * @param distance la distanza utilizzata per costruire il dendrogramma
+	 * @param from     il primo livello
+	 * @param to       l'ultimo livello
+	 * @throws InvalidDepthException se l'intervallo non è compreso tra i livelli
+	 *                               disponibili
+	 */
+	public SampleAssignment(HierarchicalClusterMiner miner, Data sample, ClusterDistance distance, int from, int to)
+			throws InvalidDepthException {
+		if (from < 0 || from > to || to >= miner.getLevelCount()) {
+			throw new InvalidDepthException("I livelli devono essere compresi tra 0 e " + (miner.getLevelCount() - 1) + ".");
+		}
+		this.sample = sample;
+		this.distance = distance;
+		this.from = from;
+		levels = new ClusterSet[to - from + 1];
+		assigned = new long[levels.length][];
+		for (int l = 0; l < levels.length; l++) {
+			levels[l] = miner.getClusterSet(from + l);
+			assigned[l] = new long[levels[l].getSize()];
+		}
+		sampled = IntStream.range(0, sample.getNumberOfExamples()).boxed()
+				.sorted(Comparator.comparingLong(sample::getSourceRow))
+				.mapToInt(Integer::intValue).toArray();
+	}
+
+	/**
+	 * Legge le righe della tabella specificata e le assegna ai cluster.
+	 *
+	 * @param tableName il nome della tabella da cui è stato estratto il campione
+	 * @throws NoDataException se la lettura della tabella non riesce o se la
+	 *                         tabella è cambiata dopo l'estrazione del campione
+	 */
+	public void assign(String tableName) throws NoDataException {
+		try {
+			Data.scan(tableName, this::add);
+		} catch (IllegalStateException e) {
+			throw new NoDataException(e.getMessage());
+		}
+		if (nextSampled < sampled.length) {
+			throw new NoDataException("La tabella è cambiata dopo l'estrazione del campione.");
+		}
+		flush();
+	}
+
+	/**
+	 * Aggiunge la prossima riga della tabella, nell'ordine in cui è stato
+	 * estratto il campione, a quelle da assegnare, ignorandola se è una riga del
+	 * campione. Le righe vengono assegnate quando ne è stato raccolto un blocco
+	 * completo o con {@link #flush()}.
+	 *
+	 * @param row la riga da assegnare
+	 * @throws IllegalStateException se la riga occupa la posizione di una riga
+	 *                               del campione ma ha valori diversi
+	 */
+	public void add(Example row) {
+		double[] point = valuesOf(row);
+		long position = rows++;
+		if (nextSampled < sampled.length && sample.getSourceRow(sampled[nextSampled]) == position) {
+			if (!Arrays.equals(point, valuesOf(sample.getExample(sampled[nextSampled])))) {
+				throw new IllegalStateException("La tabella è cambiata dopo l'estrazione del campione.");
+			}
+			nextSampled++;
+			return;
+		}
+		batch.add(point);
+		if (batch.size() == BATCH_SIZE) {
+			flush();
+		}
+	}
+
+	/**
+	 * Assegna le righe raccolte finora, cercando in parallelo il cluster più
+	 * vicino di ciascuna riga a ogni livello.
+	 */
+	public void flush() {
+		int[][] labels = new int[levels.length][batch.size()];
+		IntStream.range(0, batch.size()).parallel().forEach(r -> {
+			for (int l = 0; l < levels.length; l++) {
+				labels[l][r] = closest(levels[l], batch.get(r));
+			}
+		});
+		for (int l = 0; l < levels.length; l++) {
+			for (int label : labels[l]) {
+				assigned[l][label]++;
+			}
+		}
+		batch.clear();
+	}
+
+	/**
+	 * Restituisce il numero di righe assegnate a un cluster di un livello,
+	 * escluse quelle del campione che ne fanno parte.
+	 *
+	 * @param level   il livello
+	 * @param cluster la posizione del cluster nel livello
+	 * @return il numero di righe assegnate al cluster
+	 */
+	public long getAssignedRows(int level, int cluster) {
+		return assigned[level - from][cluster];
+	}
+
+	/**
+	 * Scrive sull'output specificato i livelli richiesti nello stesso formato di
+	 * {@link HierarchicalClusterMiner#write(Appendable, Data, int, int)}: ogni
+	 * cluster riporta gli esempi del campione che ne fanno parte, seguiti dal
+	 * numero di righe della tabella assegnate al cluster.
+	 *
+	 * @param out l'output su cui scrivere la rappresentazione
+	 * @throws IOException se si verifica un errore durante la scrittura
+	 */
+	public void write(Appendable out) throws IOException {
+		for (int l = 0; l < levels.length; l++) {
+			out.append("level").append(Integer.toString(from + l)).append(":\n");
+			for (int c = 0; c < levels[l].getSize(); c++) {
+				out.append("cluster").append(Integer.toString(c)).append(":");
+				levels[l].get(c).appendTo(out, sample);
+				out.append(" [righe assegnate: ").append(Long.toString(assigned[l][c])).append("]\n");
+			}
+			out.append("\n");
+		}
+	}
+
+	/**
+	 * Restituisce la posizione del cluster più vicino al punto specificato; a
+	 * parità di distanza, quella più bassa.
+	 *
+	 * @param level il livello
+	 * @param point i valori del punto
+	 * @return la posizione del cluster più vicino
+	 */
+	private int closest(ClusterSet level, double[] point) {
+		int best = 0;
+		double bestDistance = Double.POSITIVE_INFINITY;
+		for (int c = 0; c < level.getSize(); c++) {
+			double d = distance.distance(level.get(c), point, sample);
+			if (d < bestDistance) {
+				bestDistance = d;
+				best = c;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Restituisce i valori di un esempio.
+	 *
+	 * @param example l'esempio
+	 * @return un nuovo vettore con i valori dell'esempio
+	 */
+	private static double[] valuesOf(Example example) {
+		double[] values = new double[example.size()];
+		for (int k = 0; k < values.length; k++) {
+			values[k] = example.get(k);
+		}
+		return values;
+	}
+}
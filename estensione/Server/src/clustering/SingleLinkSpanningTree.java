@@ -0,0 +1,366 @@
+package clustering;
+
+import data.Data;
+import data.KdTree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * La classe SingleLinkSpanningTree calcola le fusioni del clustering gerarchico
+ * con distanza single-link a partire dall'albero di copertura minimo del grafo
+ * completo degli esempi, costruito con l'algoritmo di Prim in tempo O(n^2) e
+ * memoria O(n), senza mai memorizzare la matrice delle distanze.
+ * <p>
+ * Gli archi dell'albero, ordinati per peso, corrispondono alle fusioni della
+ * ricerca esaustiva. Gli archi con lo stesso peso vengono riordinati simulando
+ * la scelta di {@link ClusterSet#mergeClosestClusters}, che a parità di
+ * distanza fonde la coppia di cluster con le posizioni più basse.
+ * <p>
+ * L'albero può essere aggiornato quando vengono aggiunti nuovi esempi al
+ * dataset (vedi {@link #addVertex(Merge[], int, Data)}) con costo O(n) per
+ * esempio, invece di essere ricostruito.
+ */
+class SingleLinkSpanningTree {
+
+	private final Data data;
+	private final int n;
+	private final int[] parent; // union-find: la radice è l'esempio con indice minimo
+	private final int[] next; // lista circolare degli esempi di ogni cluster
+	private KdTree index; // vicini degli esempi per gli archi in pareggio, costruito alla prima richiesta
+
+	/**
+	 * Prepara il calcolo delle fusioni sugli esempi del dataset specificato.
+	 *
+	 * @param data l'oggetto Data che contiene i dati utilizzati per l'analisi
+	 */
+	SingleLinkSpanningTree(Data data) {
+		this.data = data;
+		this.n = data.getNumberOfExamples();
+		parent = new int[n];
+		next = new int[n];
+		for (int i = 0; i < n; i++) {
+			parent[i] = i;
+			next[i] = i;
+		}
+	}
+
+	/**
+	 * Calcola le prime fusioni nell'ordine in cui le esegue la ricerca esaustiva.
+	 *
+	 * @param count il numero di fusioni da calcolare
+	 * @return le fusioni, nell'ordine in cui vanno applicate
+	 */
+	List<Merge> computeMerges(int count) {
+		return computeMerges(minimumSpanningTree(), count);
+	}
+
+	/**
+	 * Calcola le prime fusioni nell'ordine in cui le esegue la ricerca esaustiva,
+	 * a partire da un albero di copertura minimo già costruito. Come
+	 * {@link #computeMerges(int)}, può essere invocato una sola volta per
+	 * oggetto.
+	 *
+	 * @param tree  gli n-1 archi dell'albero di copertura minimo degli esempi
+	 * @param count il numero di fusioni da calcolare
+	 * @return le fusioni, nell'ordine in cui vanno applicate
+	 */
+	List<Merge> computeMerges(Merge[] tree, int count) {
+		Merge[] edges = tree.clone();
+		Arrays.sort(edges);
+		count = Math.min(count, edges.length);
+		List<Merge> merges = new ArrayList<>(count);
+		int start = 0;
+		while (merges.size() < count) {
+			int end = start + 1;
+			while (end < edges.length && edges[end].getHeight() == edges[start].getHeight()) {
+				end++;
+			}
+			if (end - start == 1) {
+				Merge edge = edges[start];
+				int a = find(edge.getFirst());
+				int b = find(edge.getSecond());
+				union(a, b);
+				merges.add(new Merge(a, b, edge.getHeight()));
+			} else {
+				mergeTiedEdges(edges, start, end, merges, count);
+			}
+			start = end;
+		}
+		return merges;
+	}
+
+	/**
+	 * Costruisce l'albero di copertura minimo con l'algoritmo di Prim, calcolando
+	 * le distanze tra gli esempi solo quando servono.
+	 *
+	 * @return gli n-1 archi dell'albero, come fusioni tra i loro estremi
+	 */
+	Merge[] minimumSpanningTree() {
+		Merge[] edges = new Merge[Math.max(n - 1, 0)];
+		if (n < 2) {
+			return edges;
+		}
+		boolean[] inTree = new boolean[n];
+		double[] minDistance = new double[n];
+		int[] closest = new int[n];
+		Arrays.fill(minDistance, Double.POSITIVE_INFINITY);
+
+		int current = 0;
+		inTree[current] = true;
+		for (int e = 0; e < n - 1; e++) {
+			int nextVertex = -1;
+			for (int v = 0; v < n; v++) {
+				if (!inTree[v]) {
+					double d = data.getDistance(current, v);
+					if (d < minDistance[v]) {
+						minDistance[v] = d;
+						closest[v] = current;
+					}
+					if (nextVertex < 0 || minDistance[v] < minDistance[nextVertex]) {
+						nextVertex = v;
+					}
+				}
+			}
+			inTree[nextVertex] = true;
+			edges[e] = new Merge(closest[nextVertex], nextVertex, minDistance[nextVertex]);
+			current = nextVertex;
+		}
+		return edges;
+	}
+
+	/**
+	 * Aggiunge all'albero di copertura minimo degli esempi con indice minore di z
+	 * l'esempio z, restituendo l'albero di copertura minimo di tutti gli esempi
+	 * fino a z. L'albero viene visitato in post-ordine a partire da z-1 (algoritmo
+	 * di Chin e Houck): per ogni sottoalbero si individua l'arco più leggero che
+	 * lo collega a z, direttamente o tramite gli archi dell'albero, e di ogni
+	 * ciclo formato con z si scarta l'arco più pesante. Servono solo le n
+	 * distanze tra z e gli altri esempi, e il costo è O(n).
+	 *
+	 * @param tree gli archi dell'albero di copertura minimo degli esempi da 0 a
+	 *             z-1
+	 * @param z    l'indice dell'esempio da aggiungere
+	 * @param data l'oggetto Data che contiene gli esempi
+	 * @return gli z archi dell'albero di copertura minimo degli esempi da 0 a z
+	 */
+	static Merge[] addVertex(Merge[] tree, int z, Data data) {
+		Merge[] result = new Merge[z];
+		if (z == 0) {
+			return result;
+		}
+		// Liste di adiacenza dell'albero in formato compresso
+		int[] start = new int[z + 1];
+		for (Merge edge : tree) {
+			start[edge.getFirst() + 1]++;
+			start[edge.getSecond() + 1]++;
+		}
+		for (int v = 0; v < z; v++) {
+			start[v + 1] += start[v];
+		}
+		int[] fill = Arrays.copyOf(start, z);
+		Merge[] adjacent = new Merge[2 * tree.length];
+		for (Merge edge : tree) {
+			adjacent[fill[edge.getFirst()]++] = edge;
+			adjacent[fill[edge.getSecond()]++] = edge;
+		}
+
+		// Visita in profondità iterativa: order contiene i vertici in pre-ordine
+		int root = z - 1;
+		int[] order = new int[z];
+		Merge[] up = new Merge[z]; // arco verso il padre nella visita
+		int[] parent = new int[z];
+		int[] stack = new int[z];
+		int top = 0;
+		int visited = 0;
+		stack[top++] = root;
+		parent[root] = -1;
+		while (top > 0) {
+			int v = stack[--top];
+			order[visited++] = v;
+			for (int k = start[v]; k < start[v + 1]; k++) {
+				Merge edge = adjacent[k];
+				int w = edge.getFirst() == v ? edge.getSecond() : edge.getFirst();
+				if (w != parent[v]) {
+					parent[w] = v;
+					up[w] = edge;
+					stack[top++] = w;
+				}
+			}
+		}
+
+		// In post-ordine: best[v] è l'arco più leggero che collega a z il sottoalbero di v
+		Merge[] best = new Merge[z];
+		for (int v = 0; v < z; v++) {
+			best[v] = new Merge(v, z, data.getDistance(v, z));
+		}
+		int size = 0;
+		for (int i = z - 1; i > 0; i--) {
+			int w = order[i];
+			Merge t = best[w];
+			Merge edge = up[w];
+			Merge heavier = t.getHeight() > edge.getHeight() ? t : edge;
+			Merge lighter = heavier == t ? edge : t;
+			result[size++] = lighter;
+			int v = parent[w];
+			if (heavier.getHeight() < best[v].getHeight()) {
+				best[v] = heavier;
+			}
+		}
+		result[size] = best[root];
+		return result;
+	}
+
+	/**
+	 * Applica un gruppo di archi con lo stesso peso h. I cluster toccati dal
+	 * gruppo vengono fusi nell'ordine della ricerca esaustiva: a ogni passo si
+	 * sceglie, tra le coppie di cluster a distanza h, quella con l'indice minimo
+	 * più basso e, a parità, con il secondo indice minimo più basso. Poiché tutti
+	 * gli archi di peso minore sono già stati applicati, due cluster sono a
+	 * distanza h se e solo se contengono due esempi a distanza h.
+	 * <p>
+	 * Le coppie di cluster a distanza h si ottengono dalle coppie di esempi a
+	 * distanza h dei cluster toccati: con dimensione piccola cercando con un
+	 * {@link KdTree} i vicini di ciascun esempio entro h, altrimenti confrontando
+	 * una sola volta ogni coppia di esempi. Le coppie sono mantenute in liste di
+	 * adiacenza e in un insieme ordinato, per cui la memoria occupata è
+	 * proporzionale al numero di cluster toccati e di coppie a distanza h, non al
+	 * suo quadrato.
+	 *
+	 * @param edges  gli archi ordinati per peso
+	 * @param start  l'indice del primo arco del gruppo
+	 * @param end    l'indice successivo all'ultimo arco del gruppo
+	 * @param merges la lista a cui aggiungere le fusioni
+	 * @param count  il numero massimo di fusioni da calcolare
+	 */
+	private void mergeTiedEdges(Merge[] edges, int start, int end, List<Merge> merges, int count) {
+		double height = edges[start].getHeight();
+		int[] roots = new int[2 * (end - start)];
+		int size = 0;
+		for (int e = start; e < end; e++) {
+			roots[size++] = find(edges[e].getFirst());
+			roots[size++] = find(edges[e].getSecond());
+		}
+		Arrays.sort(roots, 0, size);
+		int distinct = 0;
+		for (int r = 0; r < size; r++) {
+			if (distinct == 0 || roots[distinct - 1] != roots[r]) {
+				roots[distinct++] = roots[r];
+			}
+		}
+
+		// Esempi dei cluster toccati, con la posizione in roots del loro cluster
+		int members = 0;
+		for (int i = 0; i < distinct; i++) {
+			int x = roots[i];
+			do {
+				members++;
+				x = next[x];
+			} while (x != roots[i]);
+		}
+		int[] example = new int[members];
+		int[] owner = new int[members];
+		members = 0;
+		for (int i = 0; i < distinct; i++) {
+			int x = roots[i];
+			do {
+				example[members] = x;
+				owner[members++] = i;
+				x = next[x];
+			} while (x != roots[i]);
+		}
+
+		List<TreeSet<Integer>> adjacent = new ArrayList<>(distinct);
+		for (int i = 0; i < distinct; i++) {
+			adjacent.add(new TreeSet<>());
+		}
+		TreeSet<Long> pairs = new TreeSet<>(); // coppie (i, j), con i < j, codificate come i * distinct + j
+		if (data.getDimension() <= HierarchicalClusterMiner.KD_TREE_MAX_DIMENSION) {
+			if (index == null) {
+				index = new KdTree(data);
+			}
+			for (int p = 0; p < members; p++) {
+				for (int y : index.withinDistance(example[p], height)) {
+					if (data.getDistance(example[p], y) == height) {
+						int j = Arrays.binarySearch(roots, 0, distinct, find(y));
+						if (j > owner[p]) {
+							link(adjacent, pairs, owner[p], j, distinct);
+						}
+					}
+				}
+			}
+		} else {
+			for (int p = 0; p < members; p++) {
+				for (int q = p + 1; q < members; q++) {
+					if (owner[p] != owner[q] && data.getDistance(example[p], example[q]) == height) {
+						link(adjacent, pairs, owner[p], owner[q], distinct);
+					}
+				}
+			}
+		}
+
+		for (int e = start; e < end && merges.size() < count; e++) {
+			long pair = pairs.first();
+			int first = (int) (pair / distinct);
+			int second = (int) (pair % distinct);
+			merges.add(new Merge(roots[first], roots[second], height));
+			union(roots[first], roots[second]);
+			// Il cluster fuso resta in posizione first ed eredita le coppie di second
+			for (int k : adjacent.get(second)) {
+				pairs.remove((long) Math.min(second, k) * distinct + Math.max(second, k));
+				adjacent.get(k).remove(second);
+				if (k != first) {
+					link(adjacent, pairs, first, k, distinct);
+				}
+			}
+			adjacent.get(second).clear();
+		}
+	}
+
+	/**
+	 * Registra che i cluster nelle posizioni i e j sono a distanza h.
+	 *
+	 * @param adjacent le liste di adiacenza dei cluster
+	 * @param pairs    l'insieme ordinato delle coppie
+	 * @param i        la posizione del primo cluster
+	 * @param j        la posizione del secondo cluster, diversa da i
+	 * @param distinct il numero di cluster toccati
+	 */
+	private static void link(List<TreeSet<Integer>> adjacent, TreeSet<Long> pairs, int i, int j, int distinct) {
+		adjacent.get(i).add(j);
+		adjacent.get(j).add(i);
+		pairs.add((long) Math.min(i, j) * distinct + Math.max(i, j));
+	}
+
+	/**
+	 * Restituisce la radice del cluster che contiene l'esempio specificato.
+	 *
+	 * @param x l'indice dell'esempio
+	 * @return l'indice minimo del cluster che contiene x
+	 */
+	private int find(int x) {
+		while (parent[x] != x) {
+			parent[x] = parent[parent[x]];
+			x = parent[x];
+		}
+		return x;
+	}
+
+	/**
+	 * Unisce i cluster con le radici specificate, concatenando le liste dei loro
+	 * esempi.
+	 *
+	 * @param a la radice del primo cluster
+	 * @param b la radice del secondo cluster
+	 */
+	private void union(int a, int b) {
+		int first = Math.min(a, b);
+		int second = Math.max(a, b);
+		parent[second] = first;
+		int tmp = next[first];
+		next[first] = next[second];
+		next[second] = tmp;
+	}
+}
@@ -0,0 +1,168 @@
+package clustering;
+
+/**
+ * Criteri di arresto anticipato per {@link HierarchicalClusterMiner}: l'analisi
+ * si ferma appena viene raggiunto il numero di cluster richiesto, appena la
+ * fusione successiva supererebbe l'altezza massima oppure appena è trascorso
+ * il tempo disponibile, anche se il dendrogramma non ha ancora raggiunto la
+ * profondità specificata. I livelli costruiti fino a quel momento restano
+ * disponibili come se la profondità fosse stata minore.
+ * <p>
+ * Gli oggetti StoppingCriteria sono immutabili e vengono creati con un
+ * {@link Builder}.
+ */
+public class StoppingCriteria {
+
+	/**
+	 * Criteri che non fermano mai l'analisi prima della profondità specificata.
+	 */
+	public static final StoppingCriteria NONE = new Builder().build();
+
+	private final int clusters; // numero di cluster a cui fermarsi, zero se non specificato
+	private final double maxHeight; // altezza massima delle fusioni
+	private final long timeBudget; // tempo disponibile in millisecondi, zero se illimitato
+
+	/**
+	 * Costruisce un nuovo oggetto StoppingCriteria con i valori del Builder.
+	 *
+	 * @param builder il Builder con i criteri specificati
+	 */
+	private StoppingCriteria(Builder builder) {
+		this.clusters = builder.clusters;
+		this.maxHeight = builder.maxHeight;
+		this.timeBudget = builder.timeBudget;
+	}
+
+	/**
+	 * Restituisce il numero di cluster a cui l'analisi si ferma.
+	 *
+	 * @return il numero di cluster, zero se non specificato
+	 */
+	public int getClusters() {
+		return clusters;
+	}
+
+	/**
+	 * Restituisce l'altezza massima delle fusioni eseguite.
+	 *
+	 * @return l'altezza massima, infinita se non specificata
+	 */
+	public double getMaxHeight() {
+		return maxHeight;
+	}
+
+	/**
+	 * Restituisce il tempo disponibile per l'analisi.
+	 *
+	 * @return il tempo disponibile in millisecondi, zero se illimitato
+	 */
+	public long getTimeBudget() {
+		return timeBudget;
+	}
+
+	/**
+	 * Restituisce la profondità effettiva del dendrogramma, cioè la profondità
+	 * specificata ridotta al livello che contiene il numero di cluster richiesto.
+	 *
+	 * @param depth    la profondità specificata
+	 * @param examples il numero di esempi
+	 * @return la profondità effettiva
+	 */
+	int limitDepth(int depth, int examples) {
+		if (clusters > 0 && examples - clusters + 1 < depth) {
+			return Math.max(examples - clusters + 1, 1);
+		}
+		return depth;
+	}
+
+	/**
+	 * Verifica se una fusione all'altezza specificata può essere eseguita.
+	 *
+	 * @param height l'altezza della fusione
+	 * @return true se l'altezza non supera quella massima, false altrimenti
+	 */
+	boolean allows(double height) {
+		return height <= maxHeight;
+	}
+
+	/**
+	 * Restituisce l'istante, in nanosecondi, oltre il quale l'analisi iniziata in
+	 * quello specificato deve fermarsi.
+	 *
+	 * @param start l'istante di inizio dell'analisi, da {@link System#nanoTime()}
+	 * @return l'istante di arresto, oppure Long.MAX_VALUE se il tempo è illimitato
+	 */
+	long deadline(long start) {
+		return timeBudget > 0 ? start + timeBudget * 1_000_000L : Long.MAX_VALUE;
+	}
+
+	/**
+	 * Builder per gli oggetti StoppingCriteria. Ogni criterio non specificato non
+	 * ferma l'analisi.
+	 */
+	public static class Builder {
+
+		private int clusters;
+		private double maxHeight = Double.POSITIVE_INFINITY;
+		private long timeBudget;
+
+		/**
+		 * Ferma l'analisi al livello che contiene il numero di cluster specificato.
+		 *
+		 * @param k il numero di cluster, maggiore di zero
+		 * @return questo Builder
+		 * @throws IllegalArgumentException se k non è maggiore di zero
+		 */
+		public Builder clusters(int k) {
+			if (k <= 0) {
+				throw new IllegalArgumentException("Il numero di cluster deve essere maggiore di zero.");
+			}
+			this.clusters = k;
+			return this;
+		}
+
+		/**
+		 * Ferma l'analisi prima della prima fusione con altezza maggiore di h,
+		 * come il taglio di {@link HierarchicalClusterMiner#cutAtHeight(double)}.
+		 *
+		 * @param h l'altezza massima delle fusioni
+		 * @return questo Builder
+		 * @throws IllegalArgumentException se h è NaN
+		 */
+		public Builder maxHeight(double h) {
+			if (Double.isNaN(h)) {
+				throw new IllegalArgumentException("L'altezza massima non può essere NaN.");
+			}
+			this.maxHeight = h;
+			return this;
+		}
+
+		/**
+		 * Ferma l'analisi appena è trascorso il tempo specificato dal suo inizio.
+		 * Il controllo avviene tra una fusione e la successiva, per cui le
+		 * modalità che calcolano tutte le fusioni in un solo passo (vedi
+		 * {@link MiningMode#NN_CHAIN} e {@link MiningMode#SPANNING_TREE}) lo
+		 * applicano solo alla costruzione dei livelli.
+		 *
+		 * @param millis il tempo disponibile in millisecondi, maggiore di zero
+		 * @return questo Builder
+		 * @throws IllegalArgumentException se il tempo non è maggiore di zero
+		 */
+		public Builder timeBudget(long millis) {
+			if (millis <= 0) {
+				throw new IllegalArgumentException("Il tempo disponibile deve essere maggiore di zero.");
+			}
+			this.timeBudget = millis;
+			return this;
+		}
+
+		/**
+		 * Crea l'oggetto StoppingCriteria con i criteri specificati finora.
+		 *
+		 * @return il nuovo oggetto StoppingCriteria
+		 */
+		public StoppingCriteria build() {
+			return new StoppingCriteria(this);
+		}
+	}
+}
@@ -0,0 +1,271 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * La classe CFTree riassume un flusso di esempi in un albero di
+ * {@link ClusteringFeature} come nell'algoritmo BIRCH, con memoria limitata.
+ * <p>
+ * Ogni esempio scende dalla radice seguendo il figlio con il centroide più
+ * vicino e viene assorbito dal gruppo più vicino della foglia raggiunta, se il
+ * raggio del gruppo resta entro la soglia; altrimenti diventa un nuovo gruppo.
+ * I nodi troppo pieni vengono divisi attorno ai due gruppi più lontani. Quando
+ * il numero di gruppi supera quello consentito dalla memoria disponibile, la
+ * soglia viene aumentata e l'albero viene ricostruito reinserendo i gruppi
+ * delle foglie, senza rileggere gli esempi.
+ */
+class CFTree {
+
+    private static final int BRANCHING = 50; // numero massimo di figli di un nodo interno
+    private static final int LEAF_CAPACITY = 50; // numero massimo di gruppi di una foglia
+
+    private final long memoryBudget; // memoria disponibile per i gruppi, in byte
+    private int dimension = -1; // dimensione degli esempi, nota dal primo inserimento
+    private double threshold; // quadrato del raggio massimo di un gruppo
+    private long entries; // numero di gruppi nelle foglie
+    private Node root = new Node(true);
+
+    /**
+     * Costruisce un nuovo albero vuoto che occupa all'incirca non più della
+     * memoria specificata.
+     *
+     * @param memoryBudget la memoria disponibile per i gruppi, in byte
+     */
+    CFTree(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Inserisce un esempio nell'albero.
+     *
+     * @param example l'esempio da inserire
+     * @throws IllegalArgumentException se l'esempio ha una dimensione diversa da
+     *                                  quella degli esempi già inseriti
+     */
+    void insert(Example example) {
+        if (dimension < 0) {
+            dimension = example.size();
+        } else if (example.size() != dimension) {
+            throw new IllegalArgumentException("Gli esempi hanno dimensioni diverse.");
+        }
+        insertFeature(new ClusteringFeature(example));
+        while (entries > getMaxEntries()) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Restituisce i gruppi delle foglie, da sinistra a destra.
+     *
+     * @return i gruppi che riassumono gli esempi inseriti
+     */
+    List<ClusteringFeature> getEntries() {
+        List<ClusteringFeature> result = new ArrayList<>();
+        collect(root, result);
+        return result;
+    }
+
+    /**
+     * Restituisce il numero massimo di gruppi, stimando per ciascuno lo spazio
+     * del vettore delle somme e degli oggetti che lo contengono.
+     *
+     * @return il numero massimo di gruppi, almeno due
+     */
+    private long getMaxEntries() {
+        return Math.max(memoryBudget / (8L * dimension + 64), 2);
+    }
+
+    /**
+     * Inserisce un gruppo a partire dalla radice, aggiungendo una nuova radice se
+     * quella attuale viene divisa.
+     *
+     * @param feature il gruppo da inserire
+     */
+    private void insertFeature(ClusteringFeature feature) {
+        Node[] halves = insert(root, feature);
+        if (halves != null) {
+            Node newRoot = new Node(false);
+            for (Node half : halves) {
+                newRoot.children.add(half);
+                newRoot.features.add(half.summary(dimension));
+            }
+            root = newRoot;
+        }
+    }
+
+    /**
+     * Inserisce un gruppo nel sottoalbero del nodo specificato.
+     *
+     * @param node    il nodo
+     * @param feature il gruppo da inserire
+     * @return i due nodi che sostituiscono il nodo se è stato diviso, altrimenti
+     *         null
+     */
+    private Node[] insert(Node node, ClusteringFeature feature) {
+        int closest = closest(node.features, feature);
+        if (node.leaf) {
+            if (closest >= 0 && node.features.get(closest).mergedRadius(feature) <= threshold) {
+                node.features.get(closest).add(feature);
+                return null;
+            }
+            node.features.add(feature);
+            entries++;
+            return node.features.size() > LEAF_CAPACITY ? split(node) : null;
+        }
+        node.features.get(closest).add(feature);
+        Node[] halves = insert(node.children.get(closest), feature);
+        if (halves == null) {
+            return null;
+        }
+        node.children.set(closest, halves[0]);
+        node.features.set(closest, halves[0].summary(dimension));
+        node.children.add(closest + 1, halves[1]);
+        node.features.add(closest + 1, halves[1].summary(dimension));
+        return node.children.size() > BRANCHING ? split(node) : null;
+    }
+
+    /**
+     * Restituisce la posizione del gruppo con il centroide più vicino a quello
+     * del gruppo specificato.
+     *
+     * @param features i gruppi tra cui cercare
+     * @param feature  il gruppo di riferimento
+     * @return la posizione del gruppo più vicino, oppure -1 se non ci sono gruppi
+     */
+    private static int closest(List<ClusteringFeature> features, ClusteringFeature feature) {
+        int best = -1;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < features.size(); i++) {
+            double d = features.get(i).distance(feature);
+            if (d < bestDistance) {
+                bestDistance = d;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Divide un nodo in due attorno ai suoi due gruppi più lontani, assegnando
+     * ogni altro gruppo, con il relativo figlio, al più vicino dei due.
+     *
+     * @param node il nodo da dividere
+     * @return i due nuovi nodi
+     */
+    private static Node[] split(Node node) {
+        int size = node.features.size();
+        int first = 0;
+        int second = 1;
+        double farthest = -1.0;
+        for (int i = 0; i < size; i++) {
+            for (int j = i + 1; j < size; j++) {
+                double d = node.features.get(i).distance(node.features.get(j));
+                if (d > farthest) {
+                    farthest = d;
+                    first = i;
+                    second = j;
+                }
+            }
+        }
+        Node[] halves = { new Node(node.leaf), new Node(node.leaf) };
+        ClusteringFeature a = node.features.get(first);
+        ClusteringFeature b = node.features.get(second);
+        for (int i = 0; i < size; i++) {
+            ClusteringFeature f = node.features.get(i);
+            Node half = i == first || (i != second && f.distance(a) <= f.distance(b)) ? halves[0] : halves[1];
+            half.features.add(f);
+            if (!node.leaf) {
+                half.children.add(node.children.get(i));
+            }
+        }
+        return halves;
+    }
+
+    /**
+     * Aumenta la soglia e ricostruisce l'albero reinserendo i gruppi delle
+     * foglie. La nuova soglia è almeno il doppio della precedente e almeno la
+     * media, sulle foglie, del raggio ottenuto unendo i due gruppi più vicini di
+     * ciascuna foglia, così che ogni ricostruzione riduca il numero di gruppi.
+     */
+    private void rebuild() {
+        List<ClusteringFeature> old = getEntries();
+        double sum = 0.0;
+        int leaves = 0;
+        List<Node> pending = new ArrayList<>();
+        pending.add(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.remove(pending.size() - 1);
+            if (!node.leaf) {
+                pending.addAll(node.children);
+            } else if (node.features.size() > 1) {
+                double min = Double.POSITIVE_INFINITY;
+                for (int i = 0; i < node.features.size(); i++) {
+                    for (int j = i + 1; j < node.features.size(); j++) {
+                        min = Math.min(min, node.features.get(i).mergedRadius(node.features.get(j)));
+                    }
+                }
+                sum += min;
+                leaves++;
+            }
+        }
+        double next = Math.max(2 * threshold, leaves > 0 ? sum / leaves : 0.0);
+        threshold = next > threshold ? next : Math.max(threshold * 2, Double.MIN_NORMAL);
+
+        root = new Node(true);
+        entries = 0;
+        for (ClusteringFeature feature : old) {
+            insertFeature(feature);
+        }
+    }
+
+    /**
+     * Aggiunge alla lista i gruppi delle foglie del sottoalbero specificato.
+     *
+     * @param node   la radice del sottoalbero
+     * @param result la lista a cui aggiungere i gruppi
+     */
+    private static void collect(Node node, List<ClusteringFeature> result) {
+        if (node.leaf) {
+            result.addAll(node.features);
+        } else {
+            for (Node child : node.children) {
+                collect(child, result);
+            }
+        }
+    }
+
+    /**
+     * Nodo dell'albero: una foglia contiene i gruppi, un nodo interno contiene i
+     * figli e, per ciascuno, il gruppo che riassume il suo sottoalbero.
+     */
+    private static final class Node {
+
+        private final boolean leaf;
+        private final List<ClusteringFeature> features = new ArrayList<>();
+        private final List<Node> children = new ArrayList<>();
+
+        /**
+         * Costruisce un nuovo nodo vuoto.
+         *
+         * @param leaf true per una foglia, false per un nodo interno
+         */
+        Node(boolean leaf) {
+            this.leaf = leaf;
+        }
+
+        /**
+         * Restituisce un nuovo gruppo che riassume tutti i gruppi del nodo.
+         *
+         * @param dimension la dimensione degli esempi
+         * @return il gruppo che riassume il nodo
+         */
+        ClusteringFeature summary(int dimension) {
+            ClusteringFeature result = new ClusteringFeature(dimension);
+            for (ClusteringFeature feature : features) {
+                result.add(feature);
+            }
+            return result;
+        }
+    }
+}
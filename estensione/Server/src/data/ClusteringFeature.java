@@ -0,0 +1,112 @@
+package data;
+
+/**
+ * La classe ClusteringFeature riassume un gruppo di esempi con il loro numero,
+ * la somma dei loro vettori e la somma dei quadrati delle loro norme. Queste
+ * statistiche sono additive, per cui due gruppi possono essere uniti sommandole,
+ * e bastano per calcolare il centroide e il raggio del gruppo senza conservare
+ * gli esempi.
+ */
+class ClusteringFeature {
+
+    private long count; // numero di esempi del gruppo
+    private final double[] linearSum; // somma dei vettori degli esempi
+    private double squareSum; // somma dei quadrati delle norme degli esempi
+
+    /**
+     * Costruisce un nuovo oggetto ClusteringFeature vuoto per esempi della
+     * dimensione specificata.
+     *
+     * @param dimension la dimensione degli esempi
+     */
+    ClusteringFeature(int dimension) {
+        linearSum = new double[dimension];
+    }
+
+    /**
+     * Costruisce un nuovo oggetto ClusteringFeature che riassume il solo esempio
+     * specificato.
+     *
+     * @param example l'esempio
+     */
+    ClusteringFeature(Example example) {
+        this(example.size());
+        count = 1;
+        for (int k = 0; k < linearSum.length; k++) {
+            double v = example.get(k);
+            linearSum[k] = v;
+            squareSum += v * v;
+        }
+    }
+
+    /**
+     * Aggiunge al gruppo gli esempi riassunti da un altro oggetto
+     * ClusteringFeature.
+     *
+     * @param other il gruppo da aggiungere
+     */
+    void add(ClusteringFeature other) {
+        count += other.count;
+        for (int k = 0; k < linearSum.length; k++) {
+            linearSum[k] += other.linearSum[k];
+        }
+        squareSum += other.squareSum;
+    }
+
+    /**
+     * Restituisce il numero di esempi del gruppo.
+     *
+     * @return il numero di esempi
+     */
+    long getCount() {
+        return count;
+    }
+
+    /**
+     * Restituisce il centroide del gruppo.
+     *
+     * @return il centroide
+     */
+    double[] centroid() {
+        double[] c = new double[linearSum.length];
+        for (int k = 0; k < c.length; k++) {
+            c[k] = linearSum[k] / count;
+        }
+        return c;
+    }
+
+    /**
+     * Restituisce la distanza euclidea al quadrato tra il centroide del gruppo e
+     * quello di un altro gruppo.
+     *
+     * @param other l'altro gruppo
+     * @return la distanza al quadrato tra i centroidi
+     */
+    double distance(ClusteringFeature other) {
+        double sum = 0.0;
+        for (int k = 0; k < linearSum.length; k++) {
+            double diff = linearSum[k] / count - other.linearSum[k] / other.count;
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    /**
+     * Restituisce il quadrato del raggio che avrebbe il gruppo dopo l'aggiunta
+     * di un altro gruppo, cioè la distanza quadratica media degli esempi dal
+     * centroide comune.
+     *
+     * @param other il gruppo da aggiungere
+     * @return il quadrato del raggio del gruppo unito
+     */
+    double mergedRadius(ClusteringFeature other) {
+        long n = count + other.count;
+        double centroidNorm = 0.0;
+        for (int k = 0; k < linearSum.length; k++) {
+            double c = (linearSum[k] + other.linearSum[k]) / n;
+            centroidNorm += c * c;
+        }
+        // L'arrotondamento può rendere la differenza leggermente negativa
+        return Math.max((squareSum + other.squareSum) / n - centroidNorm, 0.0);
+    }
+}
@@ -2,7 +2,10 @@ package data;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 import database.*;
 
 /**
@@ -12,6 +15,31 @@ public class Data {
 
     private List<Example> data; // lista di oggetti "Example" che rappresenta il dataset
     private int numberOfExamples; // numero di esempi nel dataset
+    private double[] features; // valori degli esempi, memorizzati riga per riga in un unico vettore
+    private float[] compactFeatures; // valori degli esempi in singola precisione, se il dataset è compatto
+    private boolean compact; // true se valori e distanze sono memorizzati in singola precisione
+    private int dimension; // numero di valori di ciascun esempio
+    private double featureError; // errore massimo, in norma euclidea, dovuto all'arrotondamento dei valori
+    private DistanceMatrix distanceMatrix; // matrice delle distanze, calcolata una sola volta su richiesta
+    private long[] weights; // numero di righe riassunte da ogni esempio, null se ogni esempio è una riga
+    private long[] sourceRows; // posizione nella tabella di ogni esempio campionato, null se non è un campione
+
+    /**
+     * Costruisce un nuovo oggetto Data vuoto, i cui esempi vengono impostati in
+     * seguito.
+     */
+    private Data() {
+    }
+
+    /**
+     * Costruisce un nuovo oggetto Data con gli esempi specificati, ad esempio
+     * ottenuti da una sorgente diversa da una tabella del database.
+     *
+     * @param examples gli esempi del dataset, tutti della stessa dimensione
+     */
+    public Data(List<Example> examples) {
+        setExamples(examples);
+    }
 
     /**
      * Costruisce un nuovo oggetto Data leggendo gli esempi dalla tabella specificata.
@@ -20,8 +48,168 @@ public class Data {
      * @throws NoDataException se non ci sono dati nella tabella
      */
     public Data(String tableName) throws NoDataException {
-        data = new ArrayList<>(); // inizializza la lista di Example
+        this(tableName, false);
+    }
 
+    /**
+     * Costruisce un nuovo oggetto Data leggendo gli esempi dalla tabella
+     * specificata. In modalità compatta i valori degli esempi e le distanze
+     * memorizzate vengono arrotondati in singola precisione, dimezzando la
+     * memoria occupata.
+     *
+     * @param tableName il nome della tabella da cui leggere gli esempi
+     * @param compact   true per memorizzare valori e distanze in singola precisione
+     * @throws NoDataException se non ci sono dati nella tabella
+     */
+    public Data(String tableName, boolean compact) throws NoDataException {
+        setExamples(readTable(tableName), compact);
+    }
+
+    /**
+     * Costruisce un oggetto Data che riassume la tabella specificata con una
+     * memoria limitata, come nella prima fase dell'algoritmo BIRCH: le righe
+     * vengono lette una alla volta e inserite in un albero di gruppi
+     * (vedi {@link CFTree}) che non supera all'incirca la memoria indicata, e
+     * ogni esempio del dataset risultante è il centroide di un gruppo di righe
+     * vicine, il cui numero è restituito da {@link #getWeight(int)}. Più memoria
+     * produce gruppi più piccoli e quindi un dendrogramma più fedele ma più
+     * costoso da costruire. Le analisi trattano i centroidi come esempi
+     * ordinari, senza tenere conto del loro peso.
+     *
+     * @param tableName    il nome della tabella da cui leggere gli esempi
+     * @param memoryBudget la memoria disponibile per i gruppi, in byte
+     * @return il dataset dei centroidi dei gruppi
+     * @throws NoDataException se non ci sono dati nella tabella o se la lettura
+     *                         non riesce
+     */
+    public static Data summarize(String tableName, long memoryBudget) throws NoDataException {
+        CFTree tree = new CFTree(memoryBudget);
+        scan(tableName, tree::insert);
+        return summarize(tree);
+    }
+
+    /**
+     * Costruisce un oggetto Data con un campione casuale uniforme delle righe
+     * della tabella specificata, scelto in una sola lettura con il campionamento
+     * a serbatoio, per cui la memoria occupata dipende solo dalla dimensione del
+     * campione. Con lo stesso seme e le righe nello stesso ordine il campione è
+     * sempre lo stesso.
+     *
+     * @param tableName  il nome della tabella da cui leggere gli esempi
+     * @param sampleSize il numero massimo di righe del campione
+     * @param seed       il seme del generatore casuale
+     * @return il dataset delle righe campionate, tutte se la tabella ne contiene
+     *         al più sampleSize
+     * @throws NoDataException se non ci sono dati nella tabella o se la lettura
+     *                         non riesce
+     * @throws IllegalArgumentException se sampleSize non è maggiore di zero
+     */
+    public static Data sample(String tableName, int sampleSize, long seed) throws NoDataException {
+        Reservoir reservoir = new Reservoir(sampleSize, seed);
+        scan(tableName, reservoir);
+        return reservoir.toData();
+    }
+
+    /**
+     * Costruisce un oggetto Data con un campione casuale uniforme delle righe
+     * specificate, scelto come in {@link #sample(String, int, long)}.
+     *
+     * @param rows       le righe da cui estrarre il campione
+     * @param sampleSize il numero massimo di righe del campione
+     * @param seed       il seme del generatore casuale
+     * @return il dataset delle righe campionate, tutte se sono al più sampleSize
+     * @throws IllegalArgumentException se sampleSize non è maggiore di zero
+     */
+    public static Data sample(Iterable<Example> rows, int sampleSize, long seed) {
+        Reservoir reservoir = new Reservoir(sampleSize, seed);
+        rows.forEach(reservoir);
+        return reservoir.toData();
+    }
+
+    /**
+     * Legge le righe distinte della tabella specificata una alla volta,
+     * passandole al consumer senza mantenere in memoria l'intera tabella.
+     *
+     * @param tableName il nome della tabella da cui leggere gli esempi
+     * @param consumer  il consumer a cui passare ogni riga
+     * @throws NoDataException se non ci sono dati nella tabella o se la lettura
+     *                         non riesce
+     */
+    public static void scan(String tableName, Consumer<Example> consumer) throws NoDataException {
+        DbAccess dbAccess = new DbAccess();
+        try {
+            dbAccess.initConnection();
+            new TableData(dbAccess).scanDistinctTransazioni(tableName, consumer);
+            dbAccess.closeConnection();
+        } catch (SQLException | EmptySetException | MissingNumberException | DatabaseConnectionException e) {
+            throw new NoDataException("Errore durante la lettura dei dati: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Costruisce il dataset dei centroidi dei gruppi dell'albero specificato.
+     *
+     * @param tree l'albero che riassume gli esempi
+     * @return il dataset dei centroidi, con il numero di esempi di ogni gruppo
+     */
+    static Data summarize(CFTree tree) {
+        List<ClusteringFeature> entries = tree.getEntries();
+        List<Example> centroids = new ArrayList<>(entries.size());
+        long[] counts = new long[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            centroids.add(new Example(entries.get(i).centroid()));
+            counts[i] = entries.get(i).getCount();
+        }
+        Data data = new Data();
+        data.setExamples(centroids);
+        data.weights = counts;
+        return data;
+    }
+
+    /**
+     * Restituisce il numero di righe della tabella rappresentate dall'esempio
+     * specificato: uno, se il dataset non è stato costruito con
+     * {@link #summarize(String, long)}.
+     *
+     * @param exampleIndex l'indice dell'esempio nel dataset
+     * @return il numero di righe riassunte dall'esempio
+     */
+    public long getWeight(int exampleIndex) {
+        return weights != null ? weights[exampleIndex] : 1;
+    }
+
+    /**
+     * Restituisce la posizione nella tabella, nell'ordine di lettura di
+     * {@link #scan(String, Consumer)}, della riga da cui è stato estratto
+     * l'esempio specificato di un campione costruito con
+     * {@link #sample(String, int, long)}; per gli altri dataset, l'indice
+     * dell'esempio.
+     *
+     * @param exampleIndex l'indice dell'esempio nel dataset
+     * @return la posizione della riga dell'esempio nella tabella
+     */
+    public long getSourceRow(int exampleIndex) {
+        return sourceRows != null ? sourceRows[exampleIndex] : exampleIndex;
+    }
+
+    /**
+     * Imposta la posizione nella tabella della riga di ogni esempio.
+     *
+     * @param rows la posizione della riga di ogni esempio
+     */
+    void setSourceRows(long[] rows) {
+        this.sourceRows = rows;
+    }
+
+    /**
+     * Legge gli esempi distinti della tabella specificata.
+     *
+     * @param tableName il nome della tabella da cui leggere gli esempi
+     * @return gli esempi letti dalla tabella
+     * @throws NoDataException se non ci sono dati nella tabella o se la lettura
+     *                         non riesce
+     */
+    private static List<Example> readTable(String tableName) throws NoDataException {
         DbAccess dbAccess = new DbAccess();
         try {
             dbAccess.initConnection();
@@ -30,14 +218,102 @@ public class Data {
             if (examples.isEmpty()) {
                 throw new NoDataException("La tabella non contiene dati.");
             }
-            data.addAll(examples);
-            numberOfExamples = data.size();
             dbAccess.closeConnection();
+            return examples;
         } catch (SQLException | EmptySetException | MissingNumberException | DatabaseConnectionException e) {
             throw new NoDataException("Errore durante la lettura dei dati: " + e.getMessage());
         }
     }
 
+    /**
+     * Rilegge la tabella specificata e aggiunge in coda al dataset gli esempi non
+     * ancora presenti, lasciando invariate le posizioni di quelli già
+     * memorizzati, in modo che un dendrogramma già costruito possa essere
+     * aggiornato invece di essere ricalcolato.
+     *
+     * @param tableName il nome della tabella da cui leggere gli esempi
+     * @return il numero di esempi aggiunti
+     * @throws NoDataException se la lettura non riesce o se qualche esempio del
+     *                         dataset non è più presente nella tabella
+     */
+    public int update(String tableName) throws NoDataException {
+        Set<List<Double>> known = new HashSet<>();
+        for (int i = 0; i < numberOfExamples; i++) {
+            known.add(rowOf(getExample(i)));
+        }
+        List<Example> added = new ArrayList<>();
+        int found = 0;
+        for (Example example : readTable(tableName)) {
+            if (known.contains(rowOf(example))) {
+                found++;
+            } else {
+                added.add(example);
+            }
+        }
+        if (found < numberOfExamples) {
+            throw new NoDataException("Alcuni esempi del dataset non sono più presenti nella tabella.");
+        }
+        addExamples(added);
+        return added.size();
+    }
+
+    /**
+     * Verifica se il dataset specificato contiene gli stessi esempi di questo,
+     * nelle stesse posizioni, ad esempio per riconoscere una tabella che non è
+     * cambiata da una lettura precedente.
+     *
+     * @param other il dataset da confrontare
+     * @return true se i due dataset hanno lo stesso numero di esempi e gli esempi
+     *         nelle stesse posizioni hanno gli stessi valori, false altrimenti
+     */
+    public boolean hasSameExamples(Data other) {
+        if (numberOfExamples != other.numberOfExamples || dimension != other.dimension) {
+            return false;
+        }
+        for (int i = 0; i < numberOfExamples; i++) {
+            if (!rowOf(getExample(i)).equals(rowOf(other.getExample(i)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Aggiunge gli esempi specificati in coda al dataset. I valori vengono
+     * copiati di nuovo in un unico vettore e la matrice delle distanze,
+     * se calcolata, viene scartata.
+     *
+     * @param examples gli esempi da aggiungere
+     * @throws IllegalArgumentException se gli esempi hanno dimensioni diverse da
+     *                                  quelle del dataset
+     */
+    public void addExamples(List<Example> examples) {
+        if (examples.isEmpty()) {
+            return;
+        }
+        List<Example> all = new ArrayList<>(numberOfExamples + examples.size());
+        for (int i = 0; i < numberOfExamples; i++) {
+            all.add(getExample(i));
+        }
+        all.addAll(examples);
+        setExamples(all, compact);
+    }
+
+    /**
+     * Restituisce i valori dell'esempio specificato, arrotondati come quelli
+     * memorizzati nel dataset, in una forma confrontabile con equals.
+     *
+     * @param example l'esempio
+     * @return la lista dei valori dell'esempio
+     */
+    private List<Double> rowOf(Example example) {
+        List<Double> row = new ArrayList<>(example.size());
+        for (int k = 0; k < example.size(); k++) {
+            row.add(compact ? (double) (float) example.get(k) : example.get(k));
+        }
+        return row;
+    }
+
     /**
      * Restituisce il numero di esempi memorizzati nel dataset.
      *
@@ -54,30 +330,141 @@ public class Data {
      * @return l'esempio memorizzato in data[exampleIndex]
      */
     public Example getExample(int exampleIndex) {
+        if (compact) {
+            double[] values = new double[dimension];
+            int offset = exampleIndex * dimension;
+            for (int k = 0; k < dimension; k++) {
+                values[k] = compactFeatures[offset + k];
+            }
+            return new Example(values);
+        }
         return data.get(exampleIndex);
     }
 
     /**
-     * Calcola e restituisce una matrice delle distanze euclidee tra tutti gli
-     * esempi nel dataset.
+     * Restituisce il numero di valori di ciascun esempio del dataset.
      *
-     * @return una matrice delle distanze euclidee tra gli esempi nel dataset
+     * @return la dimensione degli esempi
      */
-    public double[][] distance() {
-        int n = getNumberOfExamples();
-        double[][] distanceMatrix = new double[n][n];
+    public int getDimension() {
+        return dimension;
+    }
 
-        // Calcola le distanze tra tutti gli esempi nel dataset
-        for (int i = 0; i < n; i++) {
-            for (int j = i + 1; j < n; j++) {
-                double dist = getExample(i).distance(getExample(j));
-                distanceMatrix[i][j] = dist;
+    /**
+     * Somma i valori dell'esempio specificato ai valori corrispondenti del
+     * vettore indicato, senza creare oggetti intermedi.
+     *
+     * @param exampleIndex l'indice dell'esempio nel dataset
+     * @param target       il vettore a cui sommare i valori, di lunghezza
+     *                     {@link #getDimension()}
+     */
+    public void addExampleTo(int exampleIndex, double[] target) {
+        int offset = exampleIndex * dimension;
+        if (compact) {
+            for (int k = 0; k < dimension; k++) {
+                target[k] += compactFeatures[offset + k];
+            }
+        } else {
+            for (int k = 0; k < dimension; k++) {
+                target[k] += features[offset + k];
             }
         }
+    }
+
+    /**
+     * Indica se i valori degli esempi e le distanze sono memorizzati in singola
+     * precisione.
+     *
+     * @return true se il dataset è in modalità compatta, false altrimenti
+     */
+    public boolean isCompact() {
+        return compact;
+    }
+
+    /**
+     * Restituisce un limite superiore dell'errore introdotto dalla modalità
+     * compatta su una distanza tra esempi del valore specificato, dovuto
+     * all'arrotondamento in singola precisione dei valori degli esempi e della
+     * distanza memorizzata. Se il dataset non è compatto l'errore è nullo.
+     *
+     * @param distance il valore della distanza
+     * @return il massimo scarto tra la distanza calcolata in singola precisione e
+     *         quella calcolata in doppia precisione
+     */
+    public double getRoundingError(double distance) {
+        if (!compact) {
+            return 0.0;
+        }
+        return 2 * Math.sqrt(distance) * featureError + featureError * featureError + Math.ulp((float) distance);
+    }
 
+    /**
+     * Calcola e restituisce una matrice delle distanze euclidee tra tutti gli
+     * esempi nel dataset. La matrice viene memorizzata in forma triangolare
+     * compatta, in singola precisione se il dataset è compatto, e calcolata in
+     * parallelo alla prima invocazione; le invocazioni successive e
+     * {@link #getDistance(int, int)} la riutilizzano.
+     *
+     * @return una matrice delle distanze euclidee tra gli esempi nel dataset
+     */
+    public DistanceMatrix distance() {
+        if (distanceMatrix == null) {
+            DistanceMatrix matrix = DistanceMatrix.create(getNumberOfExamples(), compact);
+            matrix.fill(this::computeDistance);
+            distanceMatrix = matrix;
+        }
         return distanceMatrix;
     }
 
+    /**
+     * Restituisce la distanza tra due esempi del dataset. Se la matrice delle
+     * distanze è già stata calcolata con {@link #distance()} il valore viene letto
+     * dalla matrice, altrimenti viene calcolato direttamente sugli esempi.
+     *
+     * @param i l'indice del primo esempio
+     * @param j l'indice del secondo esempio
+     * @return la distanza tra l'esempio i e l'esempio j
+     */
+    public double getDistance(int i, int j) {
+        if (distanceMatrix == null) {
+            return computeDistance(i, j);
+        }
+        return distanceMatrix.get(i, j);
+    }
+
+    /**
+     * Calcola la distanza tra un esempio del dataset e un punto specificato dai
+     * suoi valori, con la stessa metrica di {@link Example#distance}.
+     *
+     * @param exampleIndex l'indice dell'esempio
+     * @param point        i valori del punto, di lunghezza {@link #getDimension()}
+     * @return la distanza tra l'esempio e il punto
+     */
+    public double getDistance(int exampleIndex, double[] point) {
+        int offset = exampleIndex * dimension;
+        double sumOfSquares = 0.0;
+        for (int k = 0; k < dimension; k++) {
+            double diff = (compact ? compactFeatures[offset + k] : features[offset + k]) - point[k];
+            sumOfSquares += diff * diff;
+        }
+        return sumOfSquares;
+    }
+
+    /**
+     * Calcola la distanza tra due esempi leggendo direttamente le rispettive righe
+     * della matrice degli esempi.
+     *
+     * @param i l'indice del primo esempio
+     * @param j l'indice del secondo esempio
+     * @return la distanza tra l'esempio i e l'esempio j
+     */
+    private double computeDistance(int i, int j) {
+        if (compact) {
+            return Example.squaredDistance(compactFeatures, i * dimension, compactFeatures, j * dimension, dimension);
+        }
+        return Example.squaredDistance(features, i * dimension, features, j * dimension, dimension);
+    }
+
     /**
      * Restituisce una rappresentazione in stringa del dataset.
      *
@@ -86,19 +473,79 @@ public class Data {
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        for (int index = 0; index < data.size(); index++) {
-            sb.append(index).append(": ").append(data.get(index)).append("\n");
+        for (int index = 0; index < numberOfExamples; index++) {
+            sb.append(index).append(": ").append(getExample(index)).append("\n");
         }
         return sb.toString();
     }
 
     /**
-     * Imposta gli esempi nel dataset.
+     * Imposta gli esempi nel dataset. I valori degli esempi vengono copiati riga
+     * per riga in un unico vettore e gli esempi del dataset diventano viste sulle
+     * rispettive righe, in modo che il calcolo delle distanze scorra memoria
+     * contigua.
      *
      * @param examples la lista di esempi da impostare
+     * @throws IllegalArgumentException se gli esempi hanno dimensioni diverse
      */
     public void setExamples(List<Example> examples) {
-        this.data = examples;
-        this.numberOfExamples = examples.size();
+        setExamples(examples, false);
+    }
+
+    /**
+     * Imposta gli esempi nel dataset, memorizzandoli in singola precisione se
+     * richiesto. In modalità compatta gli esempi restituiti da
+     * {@link #getExample(int)} vengono ricostruiti a ogni invocazione a partire
+     * dai valori arrotondati.
+     *
+     * @param examples la lista di esempi da impostare
+     * @param compact  true per memorizzare valori e distanze in singola precisione
+     * @throws IllegalArgumentException se gli esempi hanno dimensioni diverse
+     */
+    public void setExamples(List<Example> examples, boolean compact) {
+        int n = examples.size();
+        int d = n > 0 ? examples.get(0).size() : 0;
+        for (Example example : examples) {
+            if (example.size() != d) {
+                throw new IllegalArgumentException("Gli esempi hanno dimensioni diverse.");
+            }
+        }
+        if (compact) {
+            float[] matrix = new float[n * d];
+            double maxAbs = 0.0;
+            for (int i = 0; i < n; i++) {
+                Example example = examples.get(i);
+                for (int k = 0; k < d; k++) {
+                    matrix[i * d + k] = (float) example.get(k);
+                    maxAbs = Math.max(maxAbs, Math.abs(example.get(k)));
+                }
+            }
+            // Ogni differenza tra due valori arrotondati sbaglia al più di 2^-23 volte il valore massimo
+            this.featureError = Math.sqrt(d) * Math.scalb(maxAbs, -23);
+            this.compactFeatures = matrix;
+            this.features = null;
+            this.data = null;
+        } else {
+            double[] matrix = new double[n * d];
+            List<Example> views = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                Example example = examples.get(i);
+                System.arraycopy(example.values(), example.offset(), matrix, i * d, d);
+                views.add(new Example(matrix, i * d, d));
+            }
+            this.features = matrix;
+            this.compactFeatures = null;
+            this.data = views;
+            this.featureError = 0.0;
+        }
+        this.compact = compact;
+        this.dimension = d;
+        this.numberOfExamples = n;
+        if (distanceMatrix != null) {
+            distanceMatrix.close();
+        }
+        this.distanceMatrix = null;
+        this.weights = null;
+        this.sourceRows = null;
     }
 }
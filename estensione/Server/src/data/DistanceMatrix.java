@@ -0,0 +1,232 @@
+package data;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * La classe DistanceMatrix rappresenta una matrice simmetrica delle distanze tra
+ * n elementi con diagonale nulla. Viene memorizzata solo la parte triangolare
+ * superiore, in forma compatta: n(n-1)/2 valori, che possono essere memorizzati
+ * in doppia o in singola precisione.
+ */
+public abstract class DistanceMatrix {
+
+    /**
+     * Calcola la distanza tra due elementi della matrice.
+     */
+    public interface PairDistance {
+
+        /**
+         * Calcola la distanza tra gli elementi i e j.
+         *
+         * @param i l'indice del primo elemento
+         * @param j l'indice del secondo elemento, maggiore di i
+         * @return la distanza tra i due elementi
+         */
+        double distance(int i, int j);
+    }
+
+    private static final int TILE = 64; // lato dei blocchi calcolati da un singolo task
+
+    private final int size;
+
+    /**
+     * Costruisce una matrice delle distanze tra il numero di elementi specificato.
+     *
+     * @param size il numero di elementi
+     */
+    protected DistanceMatrix(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Crea una matrice compatta delle distanze tra il numero di elementi
+     * specificato, con tutte le distanze inizialmente nulle. Se la matrice occupa
+     * più della metà della memoria heap ancora disponibile viene memorizzata in un
+     * file mappato in memoria, altrimenti nello heap.
+     *
+     * @param size    il numero di elementi
+     * @param compact true per memorizzare le distanze in singola precisione,
+     *                dimezzando la memoria occupata
+     * @return la matrice creata
+     */
+    public static DistanceMatrix create(int size, boolean compact) {
+        long entries = entries(size);
+        long bytes = entries * (compact ? Float.BYTES : Double.BYTES);
+        Runtime runtime = Runtime.getRuntime();
+        long available = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+        if (bytes > available / 2) {
+            return new MappedDistanceMatrix(size, entries, compact);
+        }
+        return compact ? new FloatDistanceMatrix(size, entries) : new DoubleDistanceMatrix(size, entries);
+    }
+
+    /**
+     * Crea una matrice compatta delle distanze memorizzata in un file temporaneo
+     * mappato in memoria, indipendentemente dalla memoria heap disponibile.
+     *
+     * @param size    il numero di elementi
+     * @param compact true per memorizzare le distanze in singola precisione
+     * @return la matrice creata
+     */
+    public static DistanceMatrix createMapped(int size, boolean compact) {
+        return new MappedDistanceMatrix(size, entries(size), compact);
+    }
+
+    /**
+     * Restituisce il numero di valori memorizzati da una matrice compatta tra il
+     * numero di elementi specificato.
+     *
+     * @param size il numero di elementi
+     * @return n(n-1)/2
+     */
+    public static long entries(int size) {
+        return (long) size * (size - 1) / 2;
+    }
+
+    /**
+     * Restituisce il numero di elementi della matrice.
+     *
+     * @return il numero di elementi
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Restituisce la distanza tra gli elementi i e j.
+     *
+     * @param i l'indice del primo elemento
+     * @param j l'indice del secondo elemento
+     * @return la distanza tra i due elementi, nulla se i e j coincidono
+     */
+    public double get(int i, int j) {
+        if (i < j) {
+            return read(index(i, j));
+        } else if (j < i) {
+            return read(index(j, i));
+        }
+        return 0.0;
+    }
+
+    /**
+     * Imposta la distanza tra gli elementi i e j, con i diverso da j.
+     *
+     * @param i     l'indice del primo elemento
+     * @param j     l'indice del secondo elemento
+     * @param value la distanza da memorizzare
+     */
+    public void set(int i, int j, double value) {
+        write(i < j ? index(i, j) : index(j, i), value);
+    }
+
+    /**
+     * Calcola tutte le distanze della matrice con la funzione specificata. La
+     * matrice viene suddivisa in blocchi quadrati di dimensione contenuta, in modo
+     * che gli elementi coinvolti in un blocco restino nella cache, e i blocchi
+     * vengono calcolati in parallelo. La funzione viene invocata sempre con il
+     * primo indice minore del secondo e deve poter essere eseguita da più thread
+     * contemporaneamente.
+     *
+     * @param function la funzione che calcola la distanza tra due elementi
+     */
+    public void fill(PairDistance function) {
+        int blocks = (size + TILE - 1) / TILE;
+        int tiles = blocks * (blocks + 1) / 2;
+        ForkJoinPool.commonPool().invoke(new TileTask(function, blocks, 0, tiles));
+    }
+
+    /**
+     * Rilascia le risorse occupate dalla matrice, che non può più essere
+     * utilizzata. Le matrici memorizzate nello heap non occupano altre risorse e
+     * vengono semplicemente raccolte dal garbage collector.
+     */
+    public void close() {
+    }
+
+    /**
+     * Restituisce la posizione nella forma compatta della distanza tra gli
+     * elementi i e j, con i minore di j.
+     *
+     * @param i l'indice del primo elemento
+     * @param j l'indice del secondo elemento
+     * @return la posizione della distanza
+     */
+    protected long index(int i, int j) {
+        return (long) i * size - (long) i * (i + 1) / 2 + (j - i - 1);
+    }
+
+    /**
+     * Legge il valore nella posizione specificata della forma compatta.
+     *
+     * @param index la posizione del valore
+     * @return il valore memorizzato
+     */
+    protected abstract double read(long index);
+
+    /**
+     * Scrive il valore nella posizione specificata della forma compatta.
+     *
+     * @param index la posizione del valore
+     * @param value il valore da memorizzare
+     */
+    protected abstract void write(long index, double value);
+
+    /**
+     * Calcola un intervallo di blocchi della matrice, dividendolo ricorsivamente
+     * finché contiene un solo blocco. I blocchi sono numerati riga per riga sulla
+     * parte triangolare superiore della matrice dei blocchi.
+     */
+    private class TileTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final PairDistance function;
+        private final int blocks;
+        private final int from;
+        private final int to;
+
+        /**
+         * Costruisce il task per i blocchi da from (incluso) a to (escluso).
+         *
+         * @param function la funzione che calcola la distanza tra due elementi
+         * @param blocks   il numero di blocchi per lato
+         * @param from     il primo blocco
+         * @param to       il blocco successivo all'ultimo
+         */
+        TileTask(PairDistance function, int blocks, int from, int to) {
+            this.function = function;
+            this.blocks = blocks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new TileTask(function, blocks, from, middle), new TileTask(function, blocks, middle, to));
+                return;
+            }
+            if (from == to) {
+                return;
+            }
+            // Ricava la riga e la colonna del blocco dal suo numero
+            int row = 0;
+            int tile = from;
+            while (tile >= blocks - row) {
+                tile -= blocks - row;
+                row++;
+            }
+            int column = row + tile;
+
+            int rowEnd = Math.min(size, (row + 1) * TILE);
+            int columnEnd = Math.min(size, (column + 1) * TILE);
+            for (int i = row * TILE; i < rowEnd; i++) {
+                for (int j = Math.max(i + 1, column * TILE); j < columnEnd; j++) {
+                    write(index(i, j), function.distance(i, j));
+                }
+            }
+        }
+    }
+}
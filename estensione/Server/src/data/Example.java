@@ -1,30 +1,39 @@
 package data;
 
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.NoSuchElementException;
 
 /**
  * La classe Example rappresenta un vettore di valori reali.
  */
 public class Example implements Iterable<Double> {
 
-    private List<Double> example; // vettore di valori reali
+    private final double[] example; // vettore che contiene i valori reali
+    private final int offset; // posizione del primo valore nel vettore
+    private final int length; // numero di valori
 
     /**
-     * Costruisce un nuovo oggetto Example con un vettore vuoto.
+     * Costruisce un nuovo oggetto Example con i valori specificati.
+     *
+     * @param values i valori del vettore, che non vengono copiati
      */
-    public Example() {
-        example = new LinkedList<>();
+    Example(double[] values) {
+        this(values, 0, values.length);
     }
 
     /**
-     * Aggiunge un valore alla fine del vettore.
+     * Costruisce un nuovo oggetto Example come vista su una porzione di un vettore
+     * condiviso, ad esempio una riga della matrice degli esempi di {@link Data}.
      *
-     * @param v il valore da aggiungere
+     * @param values il vettore condiviso, che non viene copiato
+     * @param offset la posizione del primo valore
+     * @param length il numero di valori
      */
-    public void add(Double v) {
-        example.add(v);
+    Example(double[] values, int offset, int length) {
+        this.example = values;
+        this.offset = offset;
+        this.length = length;
     }
 
     /**
@@ -33,8 +42,39 @@ public class Example implements Iterable<Double> {
      * @param index l'indice del valore da restituire
      * @return il valore alla posizione specificata nel vettore
      */
-    public Double get(int index) {
-        return example.get(index);
+    public double get(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return example[offset + index];
+    }
+
+    /**
+     * Restituisce il numero di valori del vettore.
+     *
+     * @return la dimensione del vettore
+     */
+    public int size() {
+        return length;
+    }
+
+    /**
+     * Restituisce il vettore che contiene i valori, senza copiarlo.
+     *
+     * @return il vettore condiviso che contiene i valori
+     */
+    double[] values() {
+        return example;
+    }
+
+    /**
+     * Restituisce la posizione del primo valore nel vettore restituito da
+     * {@link #values()}.
+     *
+     * @return la posizione del primo valore
+     */
+    int offset() {
+        return offset;
     }
 
     /**
@@ -45,15 +85,81 @@ public class Example implements Iterable<Double> {
      * @return la distanza euclidea tra i due vettori
      */
     public double distance(Example other) {
-        double sumOfSquares = 0.0;
-        if (example.size() != other.example.size()) {
+        if (length != other.length) {
             throw new IllegalArgumentException("I vettori hanno dimensioni diverse.");
         }
-        for (int i = 0; i < example.size(); i++) {
-            double diff = example.get(i) - other.example.get(i);
-            sumOfSquares += diff * diff;
+        return squaredDistance(example, offset, other.example, other.offset, length);
+    }
+
+    /**
+     * Calcola la somma dei quadrati delle differenze tra due porzioni di vettori
+     * della stessa lunghezza. Il ciclo è srotolato su quattro accumulatori
+     * indipendenti, in modo che le somme non dipendano l'una dall'altra e il
+     * compilatore JIT possa eseguirle con istruzioni vettoriali.
+     *
+     * @param a       il primo vettore
+     * @param aOffset la posizione del primo valore nel primo vettore
+     * @param b       il secondo vettore
+     * @param bOffset la posizione del primo valore nel secondo vettore
+     * @param length  il numero di valori da confrontare
+     * @return la somma dei quadrati delle differenze
+     */
+    static double squaredDistance(double[] a, int aOffset, double[] b, int bOffset, int length) {
+        double s0 = 0.0;
+        double s1 = 0.0;
+        double s2 = 0.0;
+        double s3 = 0.0;
+        int i = 0;
+        for (int bound = length & ~3; i < bound; i += 4) {
+            double d0 = a[aOffset + i] - b[bOffset + i];
+            double d1 = a[aOffset + i + 1] - b[bOffset + i + 1];
+            double d2 = a[aOffset + i + 2] - b[bOffset + i + 2];
+            double d3 = a[aOffset + i + 3] - b[bOffset + i + 3];
+            s0 += d0 * d0;
+            s1 += d1 * d1;
+            s2 += d2 * d2;
+            s3 += d3 * d3;
+        }
+        for (; i < length; i++) {
+            double diff = a[aOffset + i] - b[bOffset + i];
+            s0 += diff * diff;
         }
-        return sumOfSquares; // Corretto per restituire la radice quadrata della somma dei quadrati
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * Calcola la somma dei quadrati delle differenze tra due porzioni di vettori
+     * in singola precisione della stessa lunghezza, accumulando in doppia
+     * precisione.
+     *
+     * @param a       il primo vettore
+     * @param aOffset la posizione del primo valore nel primo vettore
+     * @param b       il secondo vettore
+     * @param bOffset la posizione del primo valore nel secondo vettore
+     * @param length  il numero di valori da confrontare
+     * @return la somma dei quadrati delle differenze
+     */
+    static double squaredDistance(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        double s0 = 0.0;
+        double s1 = 0.0;
+        double s2 = 0.0;
+        double s3 = 0.0;
+        int i = 0;
+        for (int bound = length & ~3; i < bound; i += 4) {
+            double d0 = (double) a[aOffset + i] - b[bOffset + i];
+            double d1 = (double) a[aOffset + i + 1] - b[bOffset + i + 1];
+            double d2 = (double) a[aOffset + i + 2] - b[bOffset + i + 2];
+            double d3 = (double) a[aOffset + i + 3] - b[bOffset + i + 3];
+            s0 += d0 * d0;
+            s1 += d1 * d1;
+            s2 += d2 * d2;
+            s3 += d3 * d3;
+        }
+        for (; i < length; i++) {
+            double diff = (double) a[aOffset + i] - b[bOffset + i];
+            s0 += diff * diff;
+        }
+        return (s0 + s1) + (s2 + s3);
     }
 
     /**
@@ -63,7 +169,22 @@ public class Example implements Iterable<Double> {
      */
     @Override
     public Iterator<Double> iterator() {
-        return example.iterator();
+        return new Iterator<Double>() {
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < length;
+            }
+
+            @Override
+            public Double next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return example[offset + index++];
+            }
+        };
     }
 
     /**
@@ -73,6 +194,55 @@ public class Example implements Iterable<Double> {
      */
     @Override
     public String toString() {
-        return "Example [example=" + example + "]";
+        return "Example [example=" + Arrays.toString(Arrays.copyOfRange(example, offset, offset + length)) + "]";
+    }
+
+    /**
+     * Costruisce un oggetto Example aggiungendo un valore alla volta, senza
+     * conoscere in anticipo la dimensione del vettore.
+     */
+    public static class Builder {
+
+        private double[] values;
+        private int size;
+
+        /**
+         * Costruisce un nuovo Builder con un vettore vuoto.
+         */
+        public Builder() {
+            values = new double[8];
+        }
+
+        /**
+         * Costruisce un nuovo Builder per un vettore della dimensione prevista.
+         *
+         * @param expectedSize la dimensione prevista del vettore
+         */
+        public Builder(int expectedSize) {
+            values = new double[Math.max(expectedSize, 1)];
+        }
+
+        /**
+         * Aggiunge un valore alla fine del vettore.
+         *
+         * @param v il valore da aggiungere
+         * @return questo Builder
+         */
+        public Builder add(double v) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = v;
+            return this;
+        }
+
+        /**
+         * Crea l'oggetto Example con i valori aggiunti finora.
+         *
+         * @return il nuovo oggetto Example
+         */
+        public Example build() {
+            return new Example(size == values.length ? values.clone() : Arrays.copyOf(values, size));
+        }
     }
 }
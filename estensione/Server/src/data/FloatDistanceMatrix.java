@@ -0,0 +1,39 @@
+package data;
+
+/**
+ * Matrice compatta delle distanze memorizzate in singola precisione, suddivisa
+ * in segmenti per superare il limite di dimensione dei vettori Java.
+ */
+class FloatDistanceMatrix extends DistanceMatrix {
+
+    private static final int SEGMENT_BITS = 27; // 2^27 valori per segmento
+    private static final int SEGMENT_MASK = (1 << SEGMENT_BITS) - 1;
+
+    private final float[][] segments;
+
+    /**
+     * Crea la matrice con il numero di elementi e di valori specificati.
+     *
+     * @param size    il numero di elementi
+     * @param entries il numero di valori da memorizzare
+     */
+    FloatDistanceMatrix(int size, long entries) {
+        super(size);
+        int count = (int) ((entries + SEGMENT_MASK) >>> SEGMENT_BITS);
+        segments = new float[count][];
+        for (int s = 0; s < count; s++) {
+            long remaining = entries - ((long) s << SEGMENT_BITS);
+            segments[s] = new float[(int) Math.min(remaining, 1L << SEGMENT_BITS)];
+        }
+    }
+
+    @Override
+    protected double read(long index) {
+        return segments[(int) (index >>> SEGMENT_BITS)][(int) (index & SEGMENT_MASK)];
+    }
+
+    @Override
+    protected void write(long index, double value) {
+        segments[(int) (index >>> SEGMENT_BITS)][(int) (index & SEGMENT_MASK)] = (float) value;
+    }
+}
@@ -0,0 +1,404 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * La classe KdTree è un indice spaziale sugli esempi di un dataset: ogni nodo
+ * rappresenta un insieme di esempi e il più piccolo box che li contiene, e i
+ * nodi interni dividono i propri esempi a metà lungo la dimensione in cui il box
+ * è più esteso. Le ricerche del vicino più prossimo e degli esempi entro una
+ * certa distanza scartano i nodi il cui box è troppo lontano, con un costo
+ * tipicamente logaritmico finché la dimensione degli esempi resta piccola
+ * (all'incirca fino a una decina di valori).
+ * <p>
+ * Le distanze restituite e confrontate sono quelle di
+ * {@link Data#getDistance(int, int)} e {@link Data#getDistance(int, double[])},
+ * per cui i risultati coincidono con quelli di una ricerca esaustiva anche
+ * nella modalità compatta.
+ * <p>
+ * Gli esempi possono essere suddivisi in gruppi (vedi {@link #setGroups(int[])})
+ * per cercare il vicino più prossimo appartenente a un gruppo diverso, come
+ * nell'algoritmo di Borůvka per l'albero di copertura minimo.
+ */
+public class KdTree {
+
+    private static final int LEAF_SIZE = 16; // numero massimo di esempi di una foglia
+
+    private final Data data;
+    private final int dimension;
+    private final double[] points; // valori degli esempi, riga per riga
+    private final int[] order; // esempi ordinati in modo che ogni nodo ne occupi un intervallo
+    private int nodeCount;
+    private int[] start; // primo esempio di ogni nodo in order
+    private int[] end; // posizione successiva all'ultimo esempio di ogni nodo in order
+    private int[] left; // primo figlio di ogni nodo, -1 per le foglie
+    private int[] right; // secondo figlio di ogni nodo, -1 per le foglie
+    private double[] low; // estremi inferiori dei box, nodo per nodo
+    private double[] high; // estremi superiori dei box, nodo per nodo
+    private int[] groups; // gruppo di ogni esempio, null se non specificati
+    private int[] nodeGroups; // gruppo comune agli esempi di ogni nodo, -1 se non c'è
+
+    /**
+     * Costruisce l'indice sugli esempi del dataset specificato, in tempo
+     * O(n log n).
+     *
+     * @param data il dataset
+     */
+    public KdTree(Data data) {
+        this.data = data;
+        this.dimension = data.getDimension();
+        int n = data.getNumberOfExamples();
+        points = new double[n * dimension];
+        double[] row = new double[dimension];
+        for (int i = 0; i < n; i++) {
+            Arrays.fill(row, 0.0);
+            data.addExampleTo(i, row);
+            System.arraycopy(row, 0, points, i * dimension, dimension);
+        }
+        order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        int capacity = 2 * (n / LEAF_SIZE) + 1;
+        start = new int[capacity];
+        end = new int[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        low = new double[capacity * dimension];
+        high = new double[capacity * dimension];
+        if (n > 0) {
+            build(0, n);
+        }
+    }
+
+    /**
+     * Costruisce il sottoalbero degli esempi compresi tra le posizioni
+     * specificate di order.
+     *
+     * @param from la prima posizione
+     * @param to   la posizione successiva all'ultima
+     * @return l'indice del nodo creato
+     */
+    private int build(int from, int to) {
+        int node = newNode();
+        start[node] = from;
+        end[node] = to;
+        int offset = node * dimension;
+        Arrays.fill(low, offset, offset + dimension, Double.POSITIVE_INFINITY);
+        Arrays.fill(high, offset, offset + dimension, Double.NEGATIVE_INFINITY);
+        for (int p = from; p < to; p++) {
+            int base = order[p] * dimension;
+            for (int k = 0; k < dimension; k++) {
+                low[offset + k] = Math.min(low[offset + k], points[base + k]);
+                high[offset + k] = Math.max(high[offset + k], points[base + k]);
+            }
+        }
+        left[node] = -1;
+        right[node] = -1;
+        if (to - from <= LEAF_SIZE) {
+            return node;
+        }
+        int axis = 0;
+        for (int k = 1; k < dimension; k++) {
+            if (high[offset + k] - low[offset + k] > high[offset + axis] - low[offset + axis]) {
+                axis = k;
+            }
+        }
+        if (high[offset + axis] == low[offset + axis]) {
+            return node; // esempi tutti uguali: non serve dividerli
+        }
+        int middle = (from + to) >>> 1;
+        select(from, to, middle, axis);
+        int first = build(from, middle);
+        int second = build(middle, to);
+        left[node] = first;
+        right[node] = second;
+        return node;
+    }
+
+    /**
+     * Riserva un nuovo nodo, ampliando se necessario i vettori dei nodi.
+     *
+     * @return l'indice del nuovo nodo
+     */
+    private int newNode() {
+        if (nodeCount == start.length) {
+            int capacity = 2 * start.length;
+            start = Arrays.copyOf(start, capacity);
+            end = Arrays.copyOf(end, capacity);
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+            low = Arrays.copyOf(low, capacity * dimension);
+            high = Arrays.copyOf(high, capacity * dimension);
+        }
+        return nodeCount++;
+    }
+
+    /**
+     * Riordina le posizioni di order comprese tra from e to in modo che in quella
+     * specificata si trovi l'esempio che vi starebbe ordinando lungo l'asse
+     * indicato, preceduto da esempi non maggiori e seguito da esempi non minori.
+     *
+     * @param from   la prima posizione
+     * @param to     la posizione successiva all'ultima
+     * @param target la posizione da sistemare
+     * @param axis   la dimensione lungo cui ordinare
+     */
+    private void select(int from, int to, int target, int axis) {
+        int lo = from;
+        int hi = to - 1;
+        while (lo < hi) {
+            double pivot = points[order[(lo + hi) >>> 1] * dimension + axis];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (points[order[i] * dimension + axis] < pivot) {
+                    i++;
+                }
+                while (points[order[j] * dimension + axis] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int tmp = order[i];
+                    order[i] = order[j];
+                    order[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            if (target <= j) {
+                hi = j;
+            } else if (target >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Restituisce l'esempio più vicino al punto specificato; a parità di
+     * distanza, quello con indice minore.
+     *
+     * @param point i valori del punto, di lunghezza {@link Data#getDimension()}
+     * @return l'indice dell'esempio più vicino, oppure -1 se il dataset è vuoto
+     */
+    public int nearest(double[] point) {
+        Search search = new Search(Double.POSITIVE_INFINITY);
+        if (nodeCount > 0) {
+            nearest(0, point, -1, -1, search);
+        }
+        return search.index;
+    }
+
+    /**
+     * Restituisce gli esempi la cui distanza dal punto specificato non supera
+     * quella indicata.
+     *
+     * @param point  i valori del punto, di lunghezza {@link Data#getDimension()}
+     * @param radius la distanza massima, con la stessa metrica di
+     *               {@link Data#getDistance(int, double[])}
+     * @return gli indici degli esempi trovati, in ordine crescente
+     */
+    public List<Integer> withinDistance(double[] point, double radius) {
+        List<Integer> result = new ArrayList<>();
+        if (nodeCount > 0) {
+            withinDistance(0, point, -1, radius, result);
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * Restituisce gli esempi la cui distanza dall'esempio specificato non supera
+     * quella indicata, compreso l'esempio stesso. Le distanze sono quelle di
+     * {@link Data#getDistance(int, int)}, per cui possono essere confrontate
+     * esattamente con quelle usate dalla ricerca esaustiva.
+     *
+     * @param example l'indice dell'esempio
+     * @param radius  la distanza massima
+     * @return gli indici degli esempi trovati, in ordine crescente
+     */
+    public List<Integer> withinDistance(int example, double radius) {
+        double[] point = Arrays.copyOfRange(points, example * dimension, (example + 1) * dimension);
+        List<Integer> result = new ArrayList<>();
+        withinDistance(0, point, example, radius, result);
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * Assegna ogni esempio a un gruppo, per le ricerche di
+     * {@link #nearestInOtherGroup(int, double)}. I nodi con tutti gli esempi
+     * nello stesso gruppo vengono marcati, così da scartarli in blocco.
+     *
+     * @param groups il gruppo di ciascun esempio, un numero non negativo; il
+     *               vettore viene copiato
+     */
+    public void setGroups(int[] groups) {
+        this.groups = groups.clone();
+        nodeGroups = new int[nodeCount];
+        // I figli hanno indici maggiori del padre: si procede dalle foglie
+        for (int node = nodeCount - 1; node >= 0; node--) {
+            if (left[node] >= 0) {
+                int a = nodeGroups[left[node]];
+                nodeGroups[node] = a == nodeGroups[right[node]] ? a : -1;
+            } else {
+                int g = this.groups[order[start[node]]];
+                for (int p = start[node] + 1; p < end[node] && g >= 0; p++) {
+                    if (this.groups[order[p]] != g) {
+                        g = -1;
+                    }
+                }
+                nodeGroups[node] = g;
+            }
+        }
+    }
+
+    /**
+     * Restituisce l'esempio più vicino a quello specificato tra quelli di un
+     * gruppo diverso (vedi {@link #setGroups(int[])}), considerando solo gli
+     * esempi la cui distanza non supera il limite indicato; a parità di
+     * distanza, quello con indice minore.
+     *
+     * @param example l'indice dell'esempio
+     * @param bound   la distanza massima, ad esempio la migliore trovata finora
+     *                per il gruppo dell'esempio
+     * @return l'indice dell'esempio trovato, oppure -1 se nessun esempio di un
+     *         altro gruppo si trova entro il limite
+     * @throws IllegalStateException se i gruppi non sono stati specificati
+     */
+    public int nearestInOtherGroup(int example, double bound) {
+        if (groups == null) {
+            throw new IllegalStateException("I gruppi degli esempi non sono stati specificati.");
+        }
+        double[] point = Arrays.copyOfRange(points, example * dimension, (example + 1) * dimension);
+        Search search = new Search(bound);
+        nearest(0, point, example, groups[example], search);
+        return search.index;
+    }
+
+    /**
+     * Cerca nel sottoalbero di un nodo l'esempio più vicino al punto, visitando
+     * prima il figlio più vicino e scartando i nodi che non possono contenere un
+     * esempio migliore di quello trovato.
+     *
+     * @param node    il nodo
+     * @param point   i valori del punto
+     * @param example l'esempio a cui corrisponde il punto, -1 se nessuno
+     * @param group   il gruppo da escludere, -1 se nessuno
+     * @param search  lo stato della ricerca
+     */
+    private void nearest(int node, double[] point, int example, int group, Search search) {
+        if (group >= 0 && nodeGroups[node] == group) {
+            return;
+        }
+        if (lowerBound(node, point) > search.distance + slack(search.distance)) {
+            return;
+        }
+        if (left[node] < 0) {
+            for (int p = start[node]; p < end[node]; p++) {
+                int candidate = order[p];
+                if (group >= 0 && groups[candidate] == group) {
+                    continue;
+                }
+                double d = example >= 0 ? data.getDistance(example, candidate) : data.getDistance(candidate, point);
+                if (d < search.distance || (d == search.distance && (search.index < 0 || candidate < search.index))) {
+                    search.distance = d;
+                    search.index = candidate;
+                }
+            }
+            return;
+        }
+        int first = left[node];
+        int second = right[node];
+        if (lowerBound(second, point) < lowerBound(first, point)) {
+            first = right[node];
+            second = left[node];
+        }
+        nearest(first, point, example, group, search);
+        nearest(second, point, example, group, search);
+    }
+
+    /**
+     * Aggiunge alla lista gli esempi del sottoalbero di un nodo entro la distanza
+     * specificata dal punto.
+     *
+     * @param node    il nodo
+     * @param point   i valori del punto
+     * @param example l'esempio a cui corrisponde il punto, -1 se nessuno
+     * @param radius  la distanza massima
+     * @param result  la lista a cui aggiungere gli esempi
+     */
+    private void withinDistance(int node, double[] point, int example, double radius, List<Integer> result) {
+        if (lowerBound(node, point) > radius + slack(radius)) {
+            return;
+        }
+        if (left[node] < 0) {
+            for (int p = start[node]; p < end[node]; p++) {
+                int candidate = order[p];
+                double d = example >= 0 ? data.getDistance(example, candidate) : data.getDistance(candidate, point);
+                if (d <= radius) {
+                    result.add(candidate);
+                }
+            }
+            return;
+        }
+        withinDistance(left[node], point, example, radius, result);
+        withinDistance(right[node], point, example, radius, result);
+    }
+
+    /**
+     * Restituisce la distanza tra il punto e il box di un nodo, che non supera la
+     * distanza tra il punto e alcuno degli esempi del nodo.
+     *
+     * @param node  il nodo
+     * @param point i valori del punto
+     * @return il quadrato della distanza euclidea tra il punto e il box
+     */
+    private double lowerBound(int node, double[] point) {
+        int offset = node * dimension;
+        double sum = 0.0;
+        for (int k = 0; k < dimension; k++) {
+            double gap = Math.max(Math.max(low[offset + k] - point[k], point[k] - high[offset + k]), 0.0);
+            sum += gap * gap;
+        }
+        return sum;
+    }
+
+    /**
+     * Restituisce il margine con cui confrontare il limite di un box con una
+     * distanza, perché le distanze del dataset possono essere calcolate in un
+     * ordine diverso o arrotondate in singola precisione.
+     *
+     * @param distance la distanza
+     * @return il margine da aggiungere alla distanza
+     */
+    private double slack(double distance) {
+        if (Double.isInfinite(distance)) {
+            return 0.0;
+        }
+        return data.getRoundingError(distance) + Math.ulp(distance) * 4 * dimension;
+    }
+
+    /**
+     * Stato di una ricerca del vicino più prossimo.
+     */
+    private static final class Search {
+
+        private double distance; // distanza del miglior esempio trovato, o limite della ricerca
+        private int index = -1; // indice del miglior esempio trovato, -1 se nessuno
+
+        /**
+         * Costruisce lo stato iniziale di una ricerca.
+         *
+         * @param bound la distanza massima degli esempi da considerare
+         */
+        Search(double bound) {
+            this.distance = bound;
+        }
+    }
+}
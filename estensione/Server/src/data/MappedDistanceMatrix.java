@@ -0,0 +1,125 @@
+package data;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Matrice compatta delle distanze memorizzata fuori dallo heap, in un file
+ * temporaneo mappato in memoria. Il file è suddiviso in segmenti mappati
+ * separatamente, perché una singola mappatura non può superare i 2 GB; l'accesso
+ * alle pagine è gestito dalla cache del sistema operativo.
+ * <p>
+ * Il file resta aperto finché la matrice non viene chiusa con {@link #close()},
+ * che rilascia le mappature ed elimina il file: su alcuni sistemi un file
+ * mappato non può essere eliminato.
+ */
+class MappedDistanceMatrix extends DistanceMatrix {
+
+    private static final int SEGMENT_BITS = 27; // 2^27 valori per segmento
+
+    private final File file;
+    private final RandomAccessFile raf;
+    private final MappedByteBuffer[] segments;
+    private final boolean compact;
+
+    /**
+     * Crea la matrice con il numero di elementi e di valori specificati, in un
+     * file temporaneo eliminato dalla chiusura della matrice o, al più tardi,
+     * del programma.
+     *
+     * @param size    il numero di elementi
+     * @param entries il numero di valori da memorizzare
+     * @param compact true per memorizzare le distanze in singola precisione
+     * @throws UncheckedIOException se il file temporaneo non può essere creato o
+     *                              mappato
+     */
+    MappedDistanceMatrix(int size, long entries, boolean compact) {
+        super(size);
+        this.compact = compact;
+        int bytes = compact ? Float.BYTES : Double.BYTES;
+        int count = (int) ((entries + (1L << SEGMENT_BITS) - 1) >>> SEGMENT_BITS);
+        segments = new MappedByteBuffer[count];
+        try {
+            file = File.createTempFile("distances", ".bin");
+            file.deleteOnExit();
+            raf = new RandomAccessFile(file, "rw");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Impossibile creare la matrice delle distanze su file", e);
+        }
+        try {
+            FileChannel channel = raf.getChannel();
+            raf.setLength(entries * bytes);
+            for (int s = 0; s < count; s++) {
+                long first = (long) s << SEGMENT_BITS;
+                long length = Math.min(entries - first, 1L << SEGMENT_BITS) * bytes;
+                segments[s] = channel.map(FileChannel.MapMode.READ_WRITE, first * bytes, length);
+            }
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException("Impossibile creare la matrice delle distanze su file", e);
+        }
+    }
+
+    /**
+     * Rilascia le mappature, chiude il file temporaneo e lo elimina. Se il file
+     * non può essere eliminato subito viene comunque eliminato alla chiusura del
+     * programma.
+     */
+    @Override
+    public void close() {
+        for (int s = 0; s < segments.length; s++) {
+            if (segments[s] != null) {
+                unmap(segments[s]);
+                segments[s] = null;
+            }
+        }
+        try {
+            raf.close();
+        } catch (IOException e) {
+            // Il file viene comunque eliminato, subito o alla chiusura del programma
+        }
+        file.delete();
+    }
+
+    /**
+     * Rilascia subito la mappatura specificata, che altrimenti resterebbe attiva
+     * finché il buffer non viene raccolto dal garbage collector. La mappatura
+     * non deve essere più utilizzata.
+     *
+     * @param segment il buffer mappato da rilasciare
+     */
+    private static void unmap(MappedByteBuffer segment) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(field.get(null), segment);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Senza il cleaner la mappatura viene rilasciata dal garbage collector
+        }
+    }
+
+    @Override
+    protected double read(long index) {
+        MappedByteBuffer segment = segments[(int) (index >>> SEGMENT_BITS)];
+        int offset = (int) (index & ((1L << SEGMENT_BITS) - 1));
+        return compact ? segment.getFloat(offset * Float.BYTES) : segment.getDouble(offset * Double.BYTES);
+    }
+
+    @Override
+    protected void write(long index, double value) {
+        MappedByteBuffer segment = segments[(int) (index >>> SEGMENT_BITS)];
+        int offset = (int) (index & ((1L << SEGMENT_BITS) - 1));
+        if (compact) {
+            segment.putFloat(offset * Float.BYTES, (float) value);
+        } else {
+            segment.putDouble(offset * Double.BYTES, value);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * La classe Reservoir estrae un campione casuale uniforme da un flusso di
+ * esempi con il campionamento a serbatoio, ricordando la posizione nel flusso
+ * di ogni esempio campionato.
+ */
+class Reservoir implements Consumer<Example> {
+
+    private final int sampleSize; // numero massimo di esempi del campione
+    private final Random random;
+    private final List<Example> examples; // esempi campionati finora
+    private final long[] rows; // posizione nel flusso di ogni esempio campionato
+    private long seen; // numero di esempi letti finora
+
+    /**
+     * Costruisce un nuovo serbatoio vuoto.
+     *
+     * @param sampleSize il numero massimo di esempi del campione
+     * @param seed       il seme del generatore casuale
+     * @throws IllegalArgumentException se sampleSize non è maggiore di zero
+     */
+    Reservoir(int sampleSize, long seed) {
+        if (sampleSize <= 0) {
+            throw new IllegalArgumentException("La dimensione del campione deve essere maggiore di zero.");
+        }
+        this.sampleSize = sampleSize;
+        this.random = new Random(seed);
+        this.examples = new ArrayList<>(sampleSize);
+        this.rows = new long[sampleSize];
+    }
+
+    /**
+     * Legge il prossimo esempio del flusso, che sostituisce uno di quelli
+     * campionati con probabilità pari a sampleSize diviso il numero di esempi
+     * letti.
+     *
+     * @param example l'esempio letto
+     */
+    @Override
+    public void accept(Example example) {
+        if (examples.size() < sampleSize) {
+            rows[examples.size()] = seen;
+            examples.add(example);
+        } else {
+            long slot = random.nextLong(seen + 1);
+            if (slot < sampleSize) {
+                examples.set((int) slot, example);
+                rows[(int) slot] = seen;
+            }
+        }
+        seen++;
+    }
+
+    /**
+     * Costruisce il dataset degli esempi campionati.
+     *
+     * @return il dataset del campione, con la posizione nel flusso di ogni esempio
+     */
+    Data toData() {
+        Data data = new Data(examples);
+        data.setSourceRows(Arrays.copyOf(rows, examples.size()));
+        return data;
+    }
+}
@@ -3,6 +3,7 @@ package database;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 import data.Example;
 
 public class TableData {
@@ -15,19 +16,27 @@ public class TableData {
 	public List<Example> getDistinctTransazioni(String table)
 			throws SQLException, EmptySetException, MissingNumberException, DatabaseConnectionException {
 		List<Example> examples = new ArrayList<>();
+		scanDistinctTransazioni(table, examples::add);
+		return examples;
+	}
+
+	// Passa al consumer una riga distinta alla volta, senza mantenere in memoria l'intera tabella
+	public void scanDistinctTransazioni(String table, Consumer<Example> consumer)
+			throws SQLException, EmptySetException, MissingNumberException, DatabaseConnectionException {
 		String query = "SELECT DISTINCT * FROM " + table;
 
-		try (Statement stmt = db.getConnection().createStatement(); ResultSet rs = stmt.executeQuery(query)) {
+		try (Statement stmt = db.getConnection().createStatement(ResultSet.TYPE_FORWARD_ONLY,
+				ResultSet.CONCUR_READ_ONLY)) {
+			stmt.setFetchSize(Integer.MIN_VALUE); // il driver MySQL legge le righe dal server una alla volta
+			ResultSet rs = stmt.executeQuery(query);
 
 			ResultSetMetaData metaData = rs.getMetaData();
 			int columnCount = metaData.getColumnCount();
 
-			if (!rs.isBeforeFirst()) { // Verifica se il ResultSet è vuoto
-				throw new EmptySetException("La tabella è vuota.");
-			}
-
+			boolean empty = true;
 			while (rs.next()) {
-				Example example = new Example();
+				empty = false;
+				Example.Builder example = new Example.Builder(columnCount);
 				for (int i = 1; i <= columnCount; i++) {
 					Object value = rs.getObject(i);
 					if (!(value instanceof Number)) { // Verifica se l'attributo non è numerico
@@ -35,10 +44,11 @@ public class TableData {
 					}
 					example.add(((Number) value).doubleValue());
 				}
-				examples.add(example);
+				consumer.accept(example.build());
+			}
+			if (empty) { // Verifica se il ResultSet è vuoto (isBeforeFirst non è affidabile in lettura incrementale)
+				throw new EmptySetException("La tabella è vuota.");
 			}
 		}
-
-		return examples;
 	}
 }
@@ -2,16 +2,24 @@ package distance;
 
 import clustering.Cluster;
 import data.Data;
-import data.Example;
 
 /**
  * Calcola la distanza media tra due cluster utilizzando la media delle distanze
- * euclidee tra tutti i punti nei due cluster.
+ * euclidee tra tutti i punti nei due cluster. Poiché la distanza tra esempi è
+ * la distanza euclidea al quadrato, la somma delle distanze tra tutte le coppie
+ * si ricava dalle dimensioni e dalle somme mantenute da {@link Cluster}
+ * rispetto a un esempio di ciascun cluster, in tempo proporzionale al numero di
+ * valori degli esempi. Con valori interi le somme sono esatte e il risultato
+ * coincide con quello del doppio ciclo sulle coppie di esempi.
  */
-public class AverageLinkDistance implements ClusterDistance {
+public class AverageLinkDistance implements LanceWilliamsDistance {
 
     /**
-     * Calcola la distanza media tra due cluster.
+     * Calcola la distanza media tra due cluster. Indicati con r1 e r2 i punti di
+     * riferimento, con u, U e v, V le somme delle differenze e delle distanze
+     * dei due cluster dal proprio riferimento e con e = r1 - r2, la somma delle
+     * distanze tra tutte le coppie è
+     * n2 U + n1 V + n1 n2 |e|^2 - 2 u v + 2 n2 u e - 2 n1 v e.
      *
      * @param c1 il primo cluster
      * @param c2 il secondo cluster
@@ -20,23 +28,95 @@ public class AverageLinkDistance implements ClusterDistance {
      */
     @Override
     public double distance(Cluster c1, Cluster c2, Data d) {
-        double totalDistance = 0.0;
-        int count = 0;
-
-        // Usa gli iteratori per calcolare la somma delle distanze tra tutti i punti nei due cluster
-        for (int id1 : c1) {
-            for (int id2 : c2) {
-                Example ex1 = d.getExample(id1);
-                Example ex2 = d.getExample(id2);
-                totalDistance += ex1.distance(ex2);
-                count++;
-            }
+        double n1 = c1.getSize();
+        double n2 = c2.getSize();
+        if (n1 == 0 || n2 == 0)
+            return Double.POSITIVE_INFINITY; // Evita divisione per zero
+
+        double[] r1 = c1.getReference(d);
+        double[] r2 = c2.getReference(d);
+        double[] s1 = c1.getSum(d);
+        double[] s2 = c2.getSum(d);
+        double shift = 0.0;
+        double dot = 0.0;
+        double cross1 = 0.0;
+        double cross2 = 0.0;
+        for (int k = 0; k < s1.length; k++) {
+            double e = r1[k] - r2[k];
+            shift += e * e;
+            dot += s1[k] * s2[k];
+            cross1 += s1[k] * e;
+            cross2 += s2[k] * e;
         }
+        double totalDistance = n2 * c1.getSumOfSquares(d) + n1 * c2.getSumOfSquares(d) + n1 * n2 * shift
+                - 2 * dot + 2 * n2 * cross1 - 2 * n1 * cross2;
+        return totalDistance / (n1 * n2);
+    }
 
-        // Calcola la media delle distanze
-        if (count == 0)
-            return Double.POSITIVE_INFINITY; // Evita divisione per zero
-        else
-            return totalDistance / count;
+    /**
+     * Calcola la distanza media tra gli esempi del cluster e il punto. Indicati
+     * con r il punto di riferimento del cluster, con u e U le somme delle
+     * differenze e delle distanze degli esempi da r e con q = p - r, la somma
+     * delle distanze dal punto p è U - 2 u q + n |q|^2.
+     *
+     * @param c     il cluster
+     * @param point i valori del punto
+     * @param d     il dataset
+     * @return la distanza media tra il cluster e il punto
+     */
+    @Override
+    public double distance(Cluster c, double[] point, Data d) {
+        double n = c.getSize();
+        double[] r = c.getReference(d);
+        double[] s = c.getSum(d);
+        double shift = 0.0;
+        double cross = 0.0;
+        for (int k = 0; k < s.length; k++) {
+            double q = point[k] - r[k];
+            shift += q * q;
+            cross += s[k] * q;
+        }
+        return (c.getSumOfSquares(d) - 2 * cross + n * shift) / n;
+    }
+
+    /**
+     * Calcola la distanza media tra il cluster ottenuto dalla fusione di i e j e il
+     * cluster k, come media di d(i,k) e d(j,k) pesata per le dimensioni di i e j.
+     *
+     * @param dik la distanza tra il cluster i e il cluster k
+     * @param djk la distanza tra il cluster j e il cluster k
+     * @param dij la distanza tra il cluster i e il cluster j
+     * @param ni  il numero di esempi nel cluster i
+     * @param nj  il numero di esempi nel cluster j
+     * @param nk  il numero di esempi nel cluster k
+     * @return la distanza media tra il cluster fuso e il cluster k
+     */
+    @Override
+    public double update(double dik, double djk, double dij, int ni, int nj, int nk) {
+        return (ni * dik + nj * djk) / (ni + nj);
+    }
+
+    /**
+     * Indica che la distanza è riducibile.
+     *
+     * @return true
+     */
+    @Override
+    public boolean isReducible() {
+        return true;
+    }
+
+    /**
+     * Indica che la formula di aggiornamento non è esatta: la media pesata viene
+     * arrotondata diversamente dalla distanza calcolata con le somme degli
+     * esempi, per cui le distanze del cluster fuso vengono ricalcolate con
+     * {@link #distance(Cluster, Cluster, Data)}, che richiede comunque un tempo
+     * O(d).
+     *
+     * @return false
+     */
+    @Override
+    public boolean isExactUpdate() {
+        return false;
     }
 }
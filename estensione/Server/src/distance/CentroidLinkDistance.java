@@ -0,0 +1,82 @@
+package distance;
+
+import clustering.Cluster;
+import data.Data;
+
+/**
+ * Calcola la distanza tra due cluster come distanza euclidea al quadrato tra i
+ * loro baricentri. Il baricentro di ogni cluster viene calcolato una sola volta,
+ * quindi ogni distanza richiede un tempo proporzionale al numero di valori
+ * degli esempi e non alla dimensione dei cluster.
+ */
+public class CentroidLinkDistance implements LanceWilliamsDistance {
+
+    /**
+     * Calcola la distanza tra i baricentri di due cluster.
+     *
+     * @param c1 il primo cluster
+     * @param c2 il secondo cluster
+     * @param d  il dataset
+     * @return la distanza tra i baricentri dei due cluster
+     */
+    @Override
+    public double distance(Cluster c1, Cluster c2, Data d) {
+        return Vectors.squaredDistance(c1.getCentroid(d), c2.getCentroid(d));
+    }
+
+    /**
+     * Calcola la distanza tra il baricentro del cluster e il punto.
+     *
+     * @param c     il cluster
+     * @param point i valori del punto
+     * @param d     il dataset
+     * @return la distanza tra il baricentro del cluster e il punto
+     */
+    @Override
+    public double distance(Cluster c, double[] point, Data d) {
+        return Vectors.squaredDistance(c.getCentroid(d), point);
+    }
+
+    /**
+     * Calcola la distanza tra il baricentro del cluster ottenuto dalla fusione di
+     * i e j e il baricentro del cluster k.
+     *
+     * @param dik la distanza tra il cluster i e il cluster k
+     * @param djk la distanza tra il cluster j e il cluster k
+     * @param dij la distanza tra il cluster i e il cluster j
+     * @param ni  il numero di esempi nel cluster i
+     * @param nj  il numero di esempi nel cluster j
+     * @param nk  il numero di esempi nel cluster k
+     * @return la distanza tra il baricentro del cluster fuso e quello del cluster k
+     */
+    @Override
+    public double update(double dik, double djk, double dij, int ni, int nj, int nk) {
+        double n = ni + nj;
+        return (ni * dik + nj * djk) / n - ni * nj * dij / (n * n);
+    }
+
+    /**
+     * Indica che la distanza non è riducibile: il baricentro del cluster fuso può
+     * essere più vicino a un terzo cluster di entrambi i cluster di partenza.
+     *
+     * @return false
+     */
+    @Override
+    public boolean isReducible() {
+        return false;
+    }
+
+    /**
+     * Indica che la formula di aggiornamento non è esatta: la combinazione delle
+     * distanze viene arrotondata diversamente dalla distanza tra i baricentri,
+     * per cui le distanze del cluster fuso vengono ricalcolate con
+     * {@link #distance(Cluster, Cluster, Data)}, che richiede comunque un tempo
+     * O(d).
+     *
+     * @return false
+     */
+    @Override
+    public boolean isExactUpdate() {
+        return false;
+    }
+}
@@ -17,4 +17,29 @@ public interface ClusterDistance {
 	 * @return la distanza tra i due cluster
 	 */
 	double distance(Cluster c1, Cluster c2, Data d);
+
+	/**
+	 * Calcola la distanza tra un cluster e un punto che non fa parte del dataset,
+	 * come se il punto formasse un cluster a sé. Viene utilizzata per assegnare
+	 * nuovi esempi ai cluster di un dendrogramma già costruito.
+	 * <p>
+	 * L'implementazione predefinita restituisce la media delle distanze tra il
+	 * punto e gli esempi del cluster; le distanze per cui questa non è la
+	 * distanza da un cluster di un solo esempio devono ridefinirla.
+	 *
+	 * @param c     il cluster
+	 * @param point i valori del punto, di lunghezza {@link Data#getDimension()}
+	 * @param d     il dataset che contiene gli esempi del cluster
+	 * @return la distanza tra il cluster e il punto, infinita se il cluster è vuoto
+	 */
+	default double distance(Cluster c, double[] point, Data d) {
+		if (c.getSize() == 0) {
+			return Double.POSITIVE_INFINITY;
+		}
+		double total = 0.0;
+		for (int id : c) {
+			total += d.getDistance(id, point);
+		}
+		return total / c.getSize();
+	}
 }
@@ -0,0 +1,91 @@
+package distance;
+
+import clustering.Cluster;
+import data.Data;
+
+/**
+ * Calcola la distanza massima tra due cluster utilizzando la distanza massima
+ * tra i punti nei due cluster.
+ */
+public class CompleteLinkDistance implements LanceWilliamsDistance {
+
+    /**
+     * Calcola la distanza massima tra due cluster.
+     *
+     * @param c1 il primo cluster
+     * @param c2 il secondo cluster
+     * @param d  il dataset
+     * @return la distanza massima tra i due cluster
+     */
+    @Override
+    public double distance(Cluster c1, Cluster c2, Data d) {
+        double max = 0.0;
+
+        // Scorre gli indici dei due cluster per calcolare la distanza massima tra i punti nei due cluster
+        for (int x = 0; x < c1.getSize(); x++) {
+            int id1 = c1.get(x);
+            for (int y = 0; y < c2.getSize(); y++) {
+                double distance = d.getDistance(id1, c2.get(y));
+                if (distance > max) {
+                    max = distance;
+                }
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Calcola la distanza massima tra gli esempi del cluster e il punto.
+     *
+     * @param c     il cluster
+     * @param point i valori del punto
+     * @param d     il dataset
+     * @return la distanza massima tra il cluster e il punto
+     */
+    @Override
+    public double distance(Cluster c, double[] point, Data d) {
+        double max = 0.0;
+        for (int x = 0; x < c.getSize(); x++) {
+            max = Math.max(max, d.getDistance(c.get(x), point));
+        }
+        return max;
+    }
+
+    /**
+     * Calcola la distanza massima tra il cluster ottenuto dalla fusione di i e j e
+     * il cluster k, pari alla maggiore tra d(i,k) e d(j,k).
+     *
+     * @param dik la distanza tra il cluster i e il cluster k
+     * @param djk la distanza tra il cluster j e il cluster k
+     * @param dij la distanza tra il cluster i e il cluster j
+     * @param ni  il numero di esempi nel cluster i
+     * @param nj  il numero di esempi nel cluster j
+     * @param nk  il numero di esempi nel cluster k
+     * @return la distanza massima tra il cluster fuso e il cluster k
+     */
+    @Override
+    public double update(double dik, double djk, double dij, int ni, int nj, int nk) {
+        return Math.max(dik, djk);
+    }
+
+    /**
+     * Indica che la distanza è riducibile.
+     *
+     * @return true
+     */
+    @Override
+    public boolean isReducible() {
+        return true;
+    }
+
+    /**
+     * Indica che la formula di aggiornamento è esatta, perché restituisce una
+     * delle due distanze senza arrotondamenti.
+     *
+     * @return true
+     */
+    @Override
+    public boolean isExactUpdate() {
+        return true;
+    }
+}
@@ -0,0 +1,49 @@
+package distance;
+
+/**
+ * Definisce una distanza tra cluster che può essere aggiornata con la formula
+ * di Lance-Williams: la distanza tra il cluster ottenuto dalla fusione di i e j
+ * e un terzo cluster k viene calcolata a partire da d(i,k), d(j,k), d(i,j) e
+ * dalle dimensioni dei cluster, senza scorrere le coppie di esempi.
+ * <p>
+ * Le distanze che non implementano questa interfaccia vengono ricalcolate
+ * tramite {@link ClusterDistance#distance}.
+ */
+public interface LanceWilliamsDistance extends ClusterDistance {
+
+    /**
+     * Calcola la distanza tra il cluster ottenuto dalla fusione dei cluster i e j
+     * e il cluster k.
+     *
+     * @param dik la distanza tra il cluster i e il cluster k
+     * @param djk la distanza tra il cluster j e il cluster k
+     * @param dij la distanza tra il cluster i e il cluster j
+     * @param ni  il numero di esempi nel cluster i
+     * @param nj  il numero di esempi nel cluster j
+     * @param nk  il numero di esempi nel cluster k
+     * @return la distanza tra il cluster fuso e il cluster k
+     */
+    double update(double dik, double djk, double dij, int ni, int nj, int nk);
+
+    /**
+     * Indica se la distanza è riducibile, cioè se la distanza tra il cluster
+     * ottenuto dalla fusione di i e j e un cluster k non è mai minore della minore
+     * tra d(i,k) e d(j,k). Per le distanze riducibili l'ordine delle fusioni non
+     * dipende dall'ordine in cui vengono individuate le coppie di vicini reciproci.
+     *
+     * @return true se la distanza è riducibile, false altrimenti
+     */
+    boolean isReducible();
+
+    /**
+     * Indica se la formula di aggiornamento è esatta, cioè se restituisce lo
+     * stesso valore di {@link ClusterDistance#distance} sul cluster fuso, bit per
+     * bit. Se non lo è, le distanze del cluster fuso vengono ricalcolate con
+     * {@link ClusterDistance#distance}: un arrotondamento diverso potrebbe
+     * altrimenti sciogliere in modo diverso dalla ricerca esaustiva i pareggi
+     * esatti, frequenti con valori interi.
+     *
+     * @return true se la formula di aggiornamento è esatta, false altrimenti
+     */
+    boolean isExactUpdate();
+}
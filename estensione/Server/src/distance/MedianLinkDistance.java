@@ -0,0 +1,81 @@
+package distance;
+
+import clustering.Cluster;
+import data.Data;
+
+/**
+ * Calcola la distanza tra due cluster come distanza euclidea al quadrato tra i
+ * loro punti mediani. Il punto mediano di un cluster ottenuto per fusione è la
+ * media dei punti mediani dei due cluster fusi, indipendentemente dalle loro
+ * dimensioni, e viene mantenuto da {@link Cluster#mergeCluster}.
+ */
+public class MedianLinkDistance implements LanceWilliamsDistance {
+
+    /**
+     * Calcola la distanza tra i punti mediani di due cluster.
+     *
+     * @param c1 il primo cluster
+     * @param c2 il secondo cluster
+     * @param d  il dataset
+     * @return la distanza tra i punti mediani dei due cluster
+     */
+    @Override
+    public double distance(Cluster c1, Cluster c2, Data d) {
+        return Vectors.squaredDistance(c1.getMedian(d), c2.getMedian(d));
+    }
+
+    /**
+     * Calcola la distanza tra il punto mediano del cluster e il punto.
+     *
+     * @param c     il cluster
+     * @param point i valori del punto
+     * @param d     il dataset
+     * @return la distanza tra il punto mediano del cluster e il punto
+     */
+    @Override
+    public double distance(Cluster c, double[] point, Data d) {
+        return Vectors.squaredDistance(c.getMedian(d), point);
+    }
+
+    /**
+     * Calcola la distanza tra il punto mediano del cluster ottenuto dalla fusione
+     * di i e j e il punto mediano del cluster k.
+     *
+     * @param dik la distanza tra il cluster i e il cluster k
+     * @param djk la distanza tra il cluster j e il cluster k
+     * @param dij la distanza tra il cluster i e il cluster j
+     * @param ni  il numero di esempi nel cluster i
+     * @param nj  il numero di esempi nel cluster j
+     * @param nk  il numero di esempi nel cluster k
+     * @return la distanza tra il punto mediano del cluster fuso e quello del
+     *         cluster k
+     */
+    @Override
+    public double update(double dik, double djk, double dij, int ni, int nj, int nk) {
+        return (dik + djk) / 2 - dij / 4;
+    }
+
+    /**
+     * Indica che la distanza non è riducibile.
+     *
+     * @return false
+     */
+    @Override
+    public boolean isReducible() {
+        return false;
+    }
+
+    /**
+     * Indica che la formula di aggiornamento non è esatta: la combinazione delle
+     * distanze viene arrotondata diversamente dalla distanza tra i punti mediani,
+     * per cui le distanze del cluster fuso vengono ricalcolate con
+     * {@link #distance(Cluster, Cluster, Data)}, che richiede comunque un tempo
+     * O(d).
+     *
+     * @return false
+     */
+    @Override
+    public boolean isExactUpdate() {
+        return false;
+    }
+}
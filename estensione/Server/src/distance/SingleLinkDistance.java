@@ -2,13 +2,12 @@ package distance;
 
 import clustering.Cluster;
 import data.Data;
-import data.Example;
 
 /**
  * Calcola la distanza minima tra due cluster utilizzando la distanza minima tra
  * i punti nei due cluster.
  */
-public class SingleLinkDistance implements ClusterDistance {
+public class SingleLinkDistance implements LanceWilliamsDistance {
 
     /**
      * Calcola la distanza minima tra due cluster.
@@ -22,11 +21,11 @@ public class SingleLinkDistance implements ClusterDistance {
     public double distance(Cluster c1, Cluster c2, Data d) {
         double min = Double.MAX_VALUE;
 
-        // Usa gli iteratori per calcolare la distanza minima tra i punti nei due cluster
-        for (int id1 : c1) {
-            Example e1 = d.getExample(id1);
-            for (int id2 : c2) {
-                double distance = e1.distance(d.getExample(id2));
+        // Scorre gli indici dei due cluster per calcolare la distanza minima tra i punti nei due cluster
+        for (int x = 0; x < c1.getSize(); x++) {
+            int id1 = c1.get(x);
+            for (int y = 0; y < c2.getSize(); y++) {
+                double distance = d.getDistance(id1, c2.get(y));
                 if (distance < min) {
                     min = distance;
                 }
@@ -34,4 +33,59 @@ public class SingleLinkDistance implements ClusterDistance {
         }
         return min;
     }
+
+    /**
+     * Calcola la distanza minima tra gli esempi del cluster e il punto.
+     *
+     * @param c     il cluster
+     * @param point i valori del punto
+     * @param d     il dataset
+     * @return la distanza minima tra il cluster e il punto
+     */
+    @Override
+    public double distance(Cluster c, double[] point, Data d) {
+        double min = Double.MAX_VALUE;
+        for (int x = 0; x < c.getSize(); x++) {
+            min = Math.min(min, d.getDistance(c.get(x), point));
+        }
+        return min;
+    }
+
+    /**
+     * Calcola la distanza minima tra il cluster ottenuto dalla fusione di i e j e
+     * il cluster k, pari alla minore tra d(i,k) e d(j,k).
+     *
+     * @param dik la distanza tra il cluster i e il cluster k
+     * @param djk la distanza tra il cluster j e il cluster k
+     * @param dij la distanza tra il cluster i e il cluster j
+     * @param ni  il numero di esempi nel cluster i
+     * @param nj  il numero di esempi nel cluster j
+     * @param nk  il numero di esempi nel cluster k
+     * @return la distanza minima tra il cluster fuso e il cluster k
+     */
+    @Override
+    public double update(double dik, double djk, double dij, int ni, int nj, int nk) {
+        return Math.min(dik, djk);
+    }
+
+    /**
+     * Indica che la distanza è riducibile.
+     *
+     * @return true
+     */
+    @Override
+    public boolean isReducible() {
+        return true;
+    }
+
+    /**
+     * Indica che la formula di aggiornamento è esatta, perché restituisce una
+     * delle due distanze senza arrotondamenti.
+     *
+     * @return true
+     */
+    @Override
+    public boolean isExactUpdate() {
+        return true;
+    }
 }
@@ -0,0 +1,29 @@
+package distance;
+
+/**
+ * Raccoglie le operazioni sui vettori di valori reali usate dalle distanze che
+ * confrontano i punti rappresentativi dei cluster.
+ */
+final class Vectors {
+
+    private Vectors() {
+    }
+
+    /**
+     * Calcola la distanza euclidea al quadrato tra due vettori della stessa
+     * lunghezza, coerente con la distanza tra esempi calcolata da
+     * {@link data.Example#distance}.
+     *
+     * @param a il primo vettore
+     * @param b il secondo vettore
+     * @return la somma dei quadrati delle differenze
+     */
+    static double squaredDistance(double[] a, double[] b) {
+        double sumOfSquares = 0.0;
+        for (int k = 0; k < a.length; k++) {
+            double diff = a[k] - b[k];
+            sumOfSquares += diff * diff;
+        }
+        return sumOfSquares;
+    }
+}
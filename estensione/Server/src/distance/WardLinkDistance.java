@@ -0,0 +1,85 @@
+package distance;
+
+import clustering.Cluster;
+import data.Data;
+
+/**
+ * Calcola la distanza di Ward tra due cluster, proporzionale all'aumento della
+ * somma dei quadrati delle distanze dai baricentri dovuto alla loro fusione:
+ * 2 n1 n2 / (n1 + n2) volte la distanza euclidea al quadrato tra i baricentri.
+ * Il fattore 2 fa coincidere la distanza tra due esempi con quella calcolata da
+ * {@link data.Example#distance}.
+ */
+public class WardLinkDistance implements LanceWilliamsDistance {
+
+    /**
+     * Calcola la distanza di Ward tra due cluster.
+     *
+     * @param c1 il primo cluster
+     * @param c2 il secondo cluster
+     * @param d  il dataset
+     * @return la distanza di Ward tra i due cluster
+     */
+    @Override
+    public double distance(Cluster c1, Cluster c2, Data d) {
+        double n1 = c1.getSize();
+        double n2 = c2.getSize();
+        return 2 * n1 * n2 / (n1 + n2) * Vectors.squaredDistance(c1.getCentroid(d), c2.getCentroid(d));
+    }
+
+    /**
+     * Calcola l'aumento della varianza dovuto all'aggiunta del punto al cluster,
+     * con la stessa scala di {@link #distance(Cluster, Cluster, Data)}.
+     *
+     * @param c     il cluster
+     * @param point i valori del punto
+     * @param d     il dataset
+     * @return l'aumento della varianza dovuto all'aggiunta del punto
+     */
+    @Override
+    public double distance(Cluster c, double[] point, Data d) {
+        double n = c.getSize();
+        return 2 * n / (n + 1) * Vectors.squaredDistance(c.getCentroid(d), point);
+    }
+
+    /**
+     * Calcola la distanza di Ward tra il cluster ottenuto dalla fusione di i e j e
+     * il cluster k.
+     *
+     * @param dik la distanza tra il cluster i e il cluster k
+     * @param djk la distanza tra il cluster j e il cluster k
+     * @param dij la distanza tra il cluster i e il cluster j
+     * @param ni  il numero di esempi nel cluster i
+     * @param nj  il numero di esempi nel cluster j
+     * @param nk  il numero di esempi nel cluster k
+     * @return la distanza di Ward tra il cluster fuso e il cluster k
+     */
+    @Override
+    public double update(double dik, double djk, double dij, int ni, int nj, int nk) {
+        return ((ni + nk) * dik + (nj + nk) * djk - nk * dij) / (ni + nj + nk);
+    }
+
+    /**
+     * Indica che la distanza è riducibile.
+     *
+     * @return true
+     */
+    @Override
+    public boolean isReducible() {
+        return true;
+    }
+
+    /**
+     * Indica che la formula di aggiornamento non è esatta: la combinazione delle
+     * distanze viene arrotondata diversamente dalla distanza calcolata con i
+     * baricentri, per cui le distanze del cluster fuso vengono ricalcolate con
+     * {@link #distance(Cluster, Cluster, Data)}, che richiede comunque un tempo
+     * O(d).
+     *
+     * @return false
+     */
+    @Override
+    public boolean isExactUpdate() {
+        return false;
+    }
+}
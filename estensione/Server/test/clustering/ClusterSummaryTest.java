@@ -0,0 +1,206 @@
+package clustering;
+
+import data.Data;
+import data.Example;
+import distance.AverageLinkDistance;
+import distance.ClusterDistance;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Verifica la distanza average-link calcolata con le statistiche dei cluster
+ * (vedi {@link Cluster#getReference(Data)}) confrontandola con il doppio ciclo
+ * sulle coppie di esempi, anche con valori lontani dall'origine, dove una
+ * formula basata sui momenti rispetto a un punto lontano perde precisione.
+ * <p>
+ * Si esegue con {@code java clustering.ClusterSummaryTest}; termina con un
+ * errore alla prima verifica non superata.
+ */
+public class ClusterSummaryTest {
+
+	private static final double TOLERANCE = 1e-9; // errore relativo ammesso sulle distanze
+
+	public static void main(String[] args) throws Exception {
+		distantRows();
+		offsetClusters();
+		offsetDendrogram();
+		integerDendrogram();
+		System.out.println("ClusterSummaryTest: OK");
+	}
+
+	/**
+	 * Righe lontane dal primo esempio, con le distanze note.
+	 */
+	private static void distantRows() {
+		Data data = dataOf(new double[][] { { 0, 0 }, { 1e8, 1e8 }, { 1e8 + 0.5, 1e8 }, { 1e8 + 3, 1e8 } });
+		AverageLinkDistance distance = new AverageLinkDistance();
+		Cluster c1 = new Cluster(new int[] { 1 });
+		Cluster c2 = new Cluster(new int[] { 2 });
+		Cluster c3 = new Cluster(new int[] { 3 });
+		check(distance.distance(c1, c2, data) == 0.25, "d(1,2) = 0.25");
+		check(distance.distance(c1, c3, data) == 9.0, "d(1,3) = 9");
+		check(distance.distance(c2, c3, data) == 6.25, "d(2,3) = 6.25");
+		Cluster merged = c1.mergeCluster(c2);
+		check(distance.distance(merged, c3, data) == 7.625, "d({1,2},3) = 7.625");
+		check(distance.distance(merged, new double[] { 1e8 + 3, 1e8 }, data) == 7.625, "d({1,2},p) = 7.625");
+	}
+
+	/**
+	 * Cluster casuali, con statistiche calcolate scorrendo gli esempi o ottenute
+	 * per fusione, su valori con un grande scostamento comune.
+	 */
+	private static void offsetClusters() {
+		Random random = new Random(1);
+		Data data = offsetData(random, 200, 3, 1e6);
+		AverageLinkDistance distance = new AverageLinkDistance();
+		for (int trial = 0; trial < 200; trial++) {
+			Cluster a = randomCluster(random, data, distance);
+			Cluster b = randomCluster(random, data, distance);
+			check(close(distance.distance(a, b, data), pairDistance(a, b, data)), "distanza tra cluster");
+			double[] point = new double[data.getDimension()];
+			for (int k = 0; k < point.length; k++) {
+				point[k] = 1e6 + random.nextDouble();
+			}
+			check(close(distance.distance(a, point, data), pointDistance(a, point, data)), "distanza da un punto");
+		}
+	}
+
+	/**
+	 * Il dendrogramma della ricerca esaustiva coincide con quello ottenuto con il
+	 * doppio ciclo sulle coppie di esempi, con il primo esempio nell'origine e gli
+	 * altri lontani, e con due gruppi molto distanti tra loro.
+	 */
+	private static void offsetDendrogram() {
+		Random random = new Random(2);
+		Data origin = offsetData(random, 40, 2, 1e6);
+		assertSameDendrogram(origin);
+		List<Example> groups = new ArrayList<>();
+		for (int i = 0; i < 40; i++) {
+			double shift = i % 2 == 0 ? 0.0 : 1e5;
+			groups.add(exampleOf(shift + random.nextDouble(), shift + random.nextDouble()));
+		}
+		assertSameDendrogram(new Data(groups));
+	}
+
+	/**
+	 * Con valori interi, dove le distanze in pareggio sono frequenti, il
+	 * dendrogramma coincide con quello del doppio ciclo anche nell'ordine delle
+	 * fusioni in pareggio.
+	 */
+	private static void integerDendrogram() {
+		Random random = new Random(3);
+		List<Example> rows = new ArrayList<>();
+		for (int i = 0; i < 60; i++) {
+			rows.add(exampleOf(1e6 + random.nextInt(4), random.nextInt(4), random.nextInt(4)));
+		}
+		assertSameDendrogram(new Data(rows));
+	}
+
+	private static void assertSameDendrogram(Data data) {
+		int n = data.getNumberOfExamples();
+		HierarchicalClusterMiner expected = new HierarchicalClusterMiner(n, data);
+		expected.mine(data, new PairLoopDistance());
+		HierarchicalClusterMiner actual = new HierarchicalClusterMiner(n, data);
+		actual.mine(data, new AverageLinkDistance());
+		check(expected.toString().equals(actual.toString()), "dendrogramma uguale al doppio ciclo");
+	}
+
+	/**
+	 * Crea un cluster casuale, a volte per fusione di cluster disgiunti con le
+	 * statistiche già calcolate, per verificare anche le statistiche ottenute per
+	 * fusione.
+	 */
+	private static Cluster randomCluster(Random random, Data data, ClusterDistance distance) {
+		List<Integer> ids = new ArrayList<>();
+		for (int i = 0; i < data.getNumberOfExamples(); i++) {
+			ids.add(i);
+		}
+		Collections.shuffle(ids, random);
+		int next = 0;
+		Cluster cluster = new Cluster(new int[] { ids.get(next++) });
+		int parts = 1 + random.nextInt(4);
+		for (int p = 0; p < parts; p++) {
+			Cluster part = new Cluster();
+			int size = 1 + random.nextInt(10);
+			for (int s = 0; s < size; s++) {
+				part.addData(ids.get(next++));
+			}
+			if (random.nextBoolean()) {
+				distance.distance(cluster, part, data); // calcola le statistiche prima della fusione
+			}
+			cluster = cluster.mergeCluster(part);
+		}
+		return cluster;
+	}
+
+	private static Data offsetData(Random random, int n, int dimension, double offset) {
+		List<Example> rows = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			Example.Builder builder = new Example.Builder(dimension);
+			for (int k = 0; k < dimension; k++) {
+				builder.add(i == 0 ? 0.0 : offset + random.nextDouble());
+			}
+			rows.add(builder.build());
+		}
+		return new Data(rows);
+	}
+
+	private static Data dataOf(double[][] values) {
+		List<Example> rows = new ArrayList<>();
+		for (double[] row : values) {
+			rows.add(exampleOf(row));
+		}
+		return new Data(rows);
+	}
+
+	private static Example exampleOf(double... values) {
+		Example.Builder builder = new Example.Builder(values.length);
+		for (double v : values) {
+			builder.add(v);
+		}
+		return builder.build();
+	}
+
+	private static double pairDistance(Cluster a, Cluster b, Data data) {
+		double total = 0.0;
+		for (int x : a) {
+			for (int y : b) {
+				total += data.getExample(x).distance(data.getExample(y));
+			}
+		}
+		return total / ((double) a.getSize() * b.getSize());
+	}
+
+	private static double pointDistance(Cluster c, double[] point, Data data) {
+		double total = 0.0;
+		for (int x : c) {
+			total += data.getDistance(x, point);
+		}
+		return total / c.getSize();
+	}
+
+	private static boolean close(double actual, double expected) {
+		return Math.abs(actual - expected) <= TOLERANCE * Math.abs(expected);
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			throw new AssertionError(message);
+		}
+	}
+
+	/**
+	 * La distanza average-link calcolata come nella versione originale, con il
+	 * doppio ciclo sulle coppie di esempi.
+	 */
+	private static class PairLoopDistance implements ClusterDistance {
+
+		@Override
+		public double distance(Cluster c1, Cluster c2, Data d) {
+			return pairDistance(c1, c2, d);
+		}
+	}
+}
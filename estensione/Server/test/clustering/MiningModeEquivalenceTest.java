@@ -0,0 +1,116 @@
+package clustering;
+
+import data.Data;
+import data.Example;
+import distance.AverageLinkDistance;
+import distance.CentroidLinkDistance;
+import distance.ClusterDistance;
+import distance.CompleteLinkDistance;
+import distance.MedianLinkDistance;
+import distance.SingleLinkDistance;
+import distance.WardLinkDistance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Verifica che ogni modalità di {@link MiningMode} costruisca, per ogni
+ * distanza, lo stesso dendrogramma della ricerca esaustiva: su valori interi
+ * con molte distanze in pareggio, su valori con un grande scostamento comune,
+ * in modalità compatta e su una griglia in cui tutte le distanze minime sono in
+ * pareggio. {@link MiningMode#NEIGHBOR_GRAPH} è approssimata con la distanza
+ * single-link e viene confrontata solo per le altre distanze.
+ * <p>
+ * Si esegue con {@code java clustering.MiningModeEquivalenceTest}; termina con
+ * un errore alla prima verifica non superata.
+ */
+public class MiningModeEquivalenceTest {
+
+	private static final ClusterDistance[] DISTANCES = { new SingleLinkDistance(), new AverageLinkDistance(),
+			new CompleteLinkDistance(), new CentroidLinkDistance(), new MedianLinkDistance(),
+			new WardLinkDistance() };
+
+	public static void main(String[] args) {
+		Random random = new Random(6);
+		assertEquivalent("interi", integerData(random, 150, 4, 4), false);
+		assertEquivalent("interi in dimensione 10", integerData(random, 120, 10, 2), false);
+		assertEquivalent("interi compatti", integerData(random, 150, 4, 6), true);
+		assertEquivalent("scostamento", offsetData(random, 150, 3, 1e6), false);
+		assertEquivalent("scostamento compatto", offsetData(random, 150, 3, 1e3), true);
+		assertEquivalent("griglia", gridData(15), false);
+		System.out.println("MiningModeEquivalenceTest: OK");
+	}
+
+	/**
+	 * Confronta, per ogni distanza, il dendrogramma di ogni modalità con quello
+	 * della ricerca esaustiva.
+	 */
+	private static void assertEquivalent(String name, List<Example> rows, boolean compact) {
+		Data data = new Data(rows);
+		data.setExamples(rows, compact);
+		int n = data.getNumberOfExamples();
+		for (ClusterDistance distance : DISTANCES) {
+			HierarchicalClusterMiner expected = new HierarchicalClusterMiner(n, data);
+			expected.mine(data, distance, MiningMode.EXHAUSTIVE);
+			for (MiningMode mode : MiningMode.values()) {
+				if (mode == MiningMode.EXHAUSTIVE
+						|| (mode == MiningMode.NEIGHBOR_GRAPH && distance instanceof SingleLinkDistance)) {
+					continue;
+				}
+				HierarchicalClusterMiner actual = new HierarchicalClusterMiner(n, data);
+				actual.mine(data, distance, mode);
+				check(expected.toString().equals(actual.toString()),
+						name + ": " + distance.getClass().getSimpleName() + " con " + mode);
+			}
+		}
+	}
+
+	private static List<Example> integerData(Random random, int n, int dimension, int range) {
+		List<Example> rows = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			double[] values = new double[dimension];
+			for (int k = 0; k < dimension; k++) {
+				values[k] = random.nextInt(range);
+			}
+			rows.add(exampleOf(values));
+		}
+		return rows;
+	}
+
+	private static List<Example> offsetData(Random random, int n, int dimension, double offset) {
+		List<Example> rows = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			double[] values = new double[dimension];
+			for (int k = 0; k < dimension; k++) {
+				values[k] = i == 0 ? 0.0 : offset + random.nextDouble();
+			}
+			rows.add(exampleOf(values));
+		}
+		return rows;
+	}
+
+	private static List<Example> gridData(int side) {
+		List<Example> rows = new ArrayList<>();
+		for (int x = 0; x < side; x++) {
+			for (int y = 0; y < side; y++) {
+				rows.add(exampleOf(x, y));
+			}
+		}
+		return rows;
+	}
+
+	private static Example exampleOf(double... values) {
+		Example.Builder builder = new Example.Builder(values.length);
+		for (double v : values) {
+			builder.add(v);
+		}
+		return builder.build();
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			throw new AssertionError(message);
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package clustering;
+
+import data.Data;
+import data.Example;
+import distance.AverageLinkDistance;
+import distance.ClusterDistance;
+import distance.SingleLinkDistance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Verifica l'assegnazione delle righe di una tabella ai cluster di un
+ * dendrogramma costruito su un suo campione (vedi {@link SampleAssignment}):
+ * ogni riga che non fa parte del campione, anche se ha gli stessi valori di
+ * una riga del campione, viene assegnata al cluster più vicino.
+ * <p>
+ * Si esegue con {@code java clustering.SampleAssignmentTest}; termina con un
+ * errore alla prima verifica non superata.
+ */
+public class SampleAssignmentTest {
+
+	public static void main(String[] args) throws Exception {
+		List<Example> table = new ArrayList<>();
+		Random random = new Random(4);
+		for (int i = 0; i < 3000; i++) {
+			// Pochi valori interi lontani dall'origine, per avere molte righe uguali
+			table.add(exampleOf(1e7 + random.nextInt(5), 1e7 + random.nextInt(5)));
+		}
+		assertAssigned(table, new AverageLinkDistance());
+		assertAssigned(table, new SingleLinkDistance());
+		assertAssigned(table, new MeanDistance());
+		System.out.println("SampleAssignmentTest: OK");
+	}
+
+	/**
+	 * Assegna le righe della tabella e confronta il numero di righe di ogni
+	 * cluster con quello ottenuto cercando il cluster più vicino di ogni riga che
+	 * non fa parte del campione.
+	 */
+	private static void assertAssigned(List<Example> table, ClusterDistance distance) throws Exception {
+		Data sample = Data.sample(table, 200, 5);
+		check(sample.getNumberOfExamples() == 200, "dimensione del campione");
+		HierarchicalClusterMiner miner = new HierarchicalClusterMiner(sample.getNumberOfExamples(), sample);
+		miner.mine(sample, distance);
+		int from = miner.getLevelCount() - 6;
+		int to = miner.getLevelCount() - 1;
+		SampleAssignment assignment = new SampleAssignment(miner, sample, distance, from, to);
+		for (Example row : table) {
+			assignment.add(row);
+		}
+		assignment.flush();
+
+		boolean[] sampled = new boolean[table.size()];
+		for (int i = 0; i < sample.getNumberOfExamples(); i++) {
+			sampled[(int) sample.getSourceRow(i)] = true;
+		}
+		for (int level = from; level <= to; level++) {
+			ClusterSet clusters = miner.getClusterSet(level);
+			long[] expected = new long[clusters.getSize()];
+			for (int r = 0; r < table.size(); r++) {
+				if (!sampled[r]) {
+					expected[closest(clusters, valuesOf(table.get(r)), sample, distance)]++;
+				}
+			}
+			long total = 0;
+			for (int c = 0; c < clusters.getSize(); c++) {
+				check(assignment.getAssignedRows(level, c) == expected[c], "righe assegnate al cluster " + c);
+				total += assignment.getAssignedRows(level, c);
+			}
+			check(total == table.size() - sample.getNumberOfExamples(), "righe assegnate al livello " + level);
+		}
+	}
+
+	private static int closest(ClusterSet clusters, double[] point, Data sample, ClusterDistance distance) {
+		int best = 0;
+		double bestDistance = Double.POSITIVE_INFINITY;
+		for (int c = 0; c < clusters.getSize(); c++) {
+			double d = distance.distance(clusters.get(c), point, sample);
+			if (d < bestDistance) {
+				bestDistance = d;
+				best = c;
+			}
+		}
+		return best;
+	}
+
+	private static double[] valuesOf(Example example) {
+		double[] values = new double[example.size()];
+		for (int k = 0; k < values.length; k++) {
+			values[k] = example.get(k);
+		}
+		return values;
+	}
+
+	private static Example exampleOf(double... values) {
+		Example.Builder builder = new Example.Builder(values.length);
+		for (double v : values) {
+			builder.add(v);
+		}
+		return builder.build();
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			throw new AssertionError(message);
+		}
+	}
+
+	/**
+	 * Una distanza definita solo tra cluster, come quelle scritte prima della
+	 * distanza da un punto, che usa l'implementazione predefinita di
+	 * quest'ultima.
+	 */
+	private static class MeanDistance implements ClusterDistance {
+
+		@Override
+		public double distance(Cluster c1, Cluster c2, Data d) {
+			double total = 0.0;
+			for (int x : c1) {
+				for (int y : c2) {
+					total += d.getDistance(x, y);
+				}
+			}
+			return total / ((double) c1.getSize() * c2.getSize());
+		}
+	}
+}